@@ -0,0 +1,86 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Command line check of the heap allocations of a step:
+ * Steps the engine with the paddles of the first experiment at a small and a large steady particle count
+ * and measures the bytes allocated by all threads per step.
+ *
+ * The difference between both counts divided by the difference of the particles is the allocation per particle,
+ * which has to be 0: only a fixed number of objects per step and chunk may be allocated, e.g. for the parallel tasks.
+ * Exits with 1 if the allocation per particle exceeds the limit.
+ *
+ * Usage: AllocationCheck [particles] [steps]
+ */
+public class AllocationCheck {
+
+    // bytes per particle which are still accepted as noise of the measurement
+    private static final double LIMIT = 0.01;
+
+    public static void main(String[] args) {
+
+        int particles;
+        int steps;
+        try {
+            particles = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+            steps = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid arguments: " + String.join(" ", args));
+            System.exit(1);
+            return;
+        }
+
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            System.out.println("The allocated bytes per thread can't be measured on this JVM");
+            System.exit(1);
+            return;
+        }
+
+        int smallCount = particles / 10;
+        double smallBytes = measure(smallCount, steps);
+        double largeBytes = measure(particles, steps);
+        double bytesPerParticle = (largeBytes - smallBytes) / (particles - smallCount);
+
+        System.out.println(String.format("%,d particles: %,.0f bytes per step", smallCount, smallBytes));
+        System.out.println(String.format("%,d particles: %,.0f bytes per step", particles, largeBytes));
+        System.out.println(String.format("allocation per particle: %.4f bytes", bytesPerParticle));
+
+        if (bytesPerParticle > LIMIT) {
+            System.out.println("FAILED: the step allocates per particle");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Allocated bytes per step with the given number of living particles
+     */
+    private static double measure(int particles, int steps) {
+
+        FrameParameters defaults = FrameParameters.defaults();
+        int frequency = Math.max(1, (int) (particles / defaults.particleLifeSpanMax));
+
+        SimulationEngine engine = new SimulationEngine(defaults.withEmitterFrequency(frequency), 42);
+        Experiment.values()[0].addPaddles(engine);
+
+        // fill the store up to the steady state, so that its arrays don't grow any more while measuring
+        engine.step((int) defaults.particleLifeSpanMax * 2);
+
+        long start = allocatedBytes();
+        engine.step(steps);
+        return (double) (allocatedBytes() - start) / steps;
+    }
+
+    /**
+     * Bytes allocated so far by all living threads, i.e. the caller and the workers of the parallel stages
+     */
+    private static long allocatedBytes() {
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long bytes = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            bytes += Math.max(0, allocated);
+        }
+        return bytes;
+    }
+
+}
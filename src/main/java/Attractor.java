@@ -12,12 +12,15 @@ import javafx.scene.text.TextBoundsType;
  */
 public class Attractor extends Sprite {
 
-    double factor = 1.0; // similar to repeller, but with +1 factor
+    // force source at the initial location of this node, moved with it via the simulation thread
+    private final Paddle paddle;
 
     public Attractor( Vector2D location, Vector2D velocity, Vector2D acceleration, double width, double height) {
 
         super( location, velocity, acceleration, width, height);
 
+        this.paddle = new Paddle(location, Paddle.ATTRACTING);
+
     }
 
     /**
@@ -52,27 +55,8 @@ public class Attractor extends Sprite {
         return group;
     }
 
-    /**
-     * Attraction force
-     */
-    public Vector2D getForce(Particle particle) {
-
-        // calculate direction of force
-        Vector2D dir = Vector2D.subtract(position, particle.position);
-
-        // get distance (constrain distance)
-        double distance = dir.magnitude(); // distance between objects
-        dir.normalize(); // normalize vector (distance doesn't matter here, we just want this vector for direction)
-        distance = Utils.clamp(distance, 5, 1000); // keep distance within a reasonable range
-
-        // calculate magnitude
-        double force = factor * Settings.get().getAttractorStrength() / (distance * distance); // repelling force is inversely proportional to distance
-
-        // make a vector out of direction and magnitude
-        dir.multiply(force); // get force vector => magnitude * direction
-
-        return dir;
-
+    public Paddle getPaddle() {
+        return paddle;
     }
 
 }
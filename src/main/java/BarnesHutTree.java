@@ -0,0 +1,346 @@
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Barnes-Hut quadtree over the particle positions of a frame:
+ * Groups of distant particles act on a particle like a single mass at their center of mass,
+ * so the attraction between all particles costs O(n log n) instead of O(n^2).
+ *
+ * The tree is stored in arrays. The particles are sorted by the Morton code of their position, so every node
+ * covers a contiguous range of the sorted particles and the subtrees of large ranges can be built in parallel.
+ */
+public class BarnesHutTree {
+
+    // maximum number of particles in a leaf
+    private static final int LEAF_SIZE = 8;
+    // bits per axis of the Morton code, i.e. depth of the tree; 2 * 15 bits keep the sort keys positive
+    private static final int LEVELS = 15;
+    // ranges with more particles are split into parallel tasks
+    private static final int PARALLEL_THRESHOLD = 4096;
+    // same distance constraints as the paddles
+    private static final double MIN_DISTANCE = 5;
+    private static final double MAX_DISTANCE = 1000;
+
+    // Morton code in the upper and particle index in the lower 32 bits, sorted
+    private long[] keys = new long[0];
+    private int size = 0;
+
+    // nodes: center of mass, number of particles, edge length of the square, children or particles
+    private double[] centerX = new double[0];
+    private double[] centerY = new double[0];
+    private double[] mass = new double[0];
+    private double[] extent = new double[0];
+    // internal node: children are the nodes [childStart, childStart + childCount); leaf: childCount is 0
+    private int[] childStart = new int[0];
+    private int[] childCount = new int[0];
+    // leaf: particles are the keys [from, to)
+    private int[] from = new int[0];
+    private int[] to = new int[0];
+    private final AtomicInteger nodeCount = new AtomicInteger();
+
+    // bounds of the root square
+    private double minX;
+    private double minY;
+    private double rootExtent;
+
+    /**
+     * Build the tree over the current positions of all particles
+     */
+    public void build(ParticleStore particles) {
+
+        int first = particles.first();
+        size = particles.size();
+
+        if (keys.length < size) {
+            keys = new long[size + (size >> 2)];
+        }
+        // every internal node has at least two children, so there are less than 2n nodes
+        ensureNodeCapacity(2 * size + 1);
+        nodeCount.set(0);
+
+        if (size == 0) {
+            return;
+        }
+
+        computeBounds(particles);
+
+        // Morton code of every particle
+        double scale = (1 << LEVELS) / rootExtent;
+        long[] keys = this.keys;
+        particles.forEachChunk((chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int cellX = Math.min((1 << LEVELS) - 1, (int) ((particles.x[i] - minX) * scale));
+                int cellY = Math.min((1 << LEVELS) - 1, (int) ((particles.y[i] - minY) * scale));
+                keys[i - first] = ((long) interleave(cellX, cellY) << 32) | i;
+            }
+        });
+        Arrays.parallelSort(keys, 0, size);
+
+        int root = nodeCount.getAndIncrement();
+        BuildTask task = new BuildTask(particles, root, 0, size, 0);
+        if (size > PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(task);
+        } else {
+            task.compute();
+        }
+    }
+
+    private void computeBounds(ParticleStore particles) {
+
+        // bounds per chunk, combined afterwards
+        int chunks = particles.chunkCount();
+        double[] bounds = new double[4 * chunks];
+        particles.forEachChunk((chunk, from, to) -> {
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                minX = Math.min(minX, particles.x[i]);
+                minY = Math.min(minY, particles.y[i]);
+                maxX = Math.max(maxX, particles.x[i]);
+                maxY = Math.max(maxY, particles.y[i]);
+            }
+            bounds[4 * chunk] = minX;
+            bounds[4 * chunk + 1] = minY;
+            bounds[4 * chunk + 2] = maxX;
+            bounds[4 * chunk + 3] = maxY;
+        });
+
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            minX = Math.min(minX, bounds[4 * chunk]);
+            minY = Math.min(minY, bounds[4 * chunk + 1]);
+            maxX = Math.max(maxX, bounds[4 * chunk + 2]);
+            maxY = Math.max(maxY, bounds[4 * chunk + 3]);
+        }
+        // square root cell, slightly larger so that the maximum coordinates are inside
+        rootExtent = Math.max(Math.max(maxX - minX, maxY - minY), 1) * 1.0001;
+    }
+
+    private void ensureNodeCapacity(int capacity) {
+
+        if (centerX.length >= capacity) {
+            return;
+        }
+
+        capacity += capacity >> 2;
+        centerX = new double[capacity];
+        centerY = new double[capacity];
+        mass = new double[capacity];
+        extent = new double[capacity];
+        childStart = new int[capacity];
+        childCount = new int[capacity];
+        from = new int[capacity];
+        to = new int[capacity];
+    }
+
+    // spread the bits of x to the even and the bits of y to the odd positions
+    private static int interleave(int x, int y) {
+        return spread(x) | (spread(y) << 1);
+    }
+
+    private static int spread(int value) {
+        value &= 0xFFFF;
+        value = (value | (value << 8)) & 0x00FF00FF;
+        value = (value | (value << 4)) & 0x0F0F0F0F;
+        value = (value | (value << 2)) & 0x33333333;
+        value = (value | (value << 1)) & 0x55555555;
+        return value;
+    }
+
+    // quadrant of the particle at the given level, 0 is the level of the root's children
+    private int quadrant(int key, int level) {
+        return (int) (keys[key] >>> (32 + 2 * (LEVELS - 1 - level))) & 3;
+    }
+
+    /**
+     * Builds the subtree of a range of sorted particles, forks tasks for the children of large ranges
+     */
+    private class BuildTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ParticleStore particles;
+        private final int node;
+        private final int rangeFrom;
+        private final int rangeTo;
+        private final int level;
+
+        BuildTask(ParticleStore particles, int node, int rangeFrom, int rangeTo, int level) {
+            this.particles = particles;
+            this.node = node;
+            this.rangeFrom = rangeFrom;
+            this.rangeTo = rangeTo;
+            this.level = level;
+        }
+
+        @Override
+        protected void compute() {
+
+            // skip the levels at which all particles are in the same quadrant, the node gets the size of the smallest common square
+            int level = this.level;
+            while (level < LEVELS && quadrant(rangeFrom, level) == quadrant(rangeTo - 1, level)) {
+                level++;
+            }
+            extent[node] = rootExtent / (1 << level);
+
+            if (rangeTo - rangeFrom <= LEAF_SIZE || level == LEVELS) {
+                buildLeaf();
+                return;
+            }
+
+            // split the range by quadrant, the particles are sorted by quadrant
+            int[] bounds = new int[5];
+            bounds[0] = rangeFrom;
+            for (int quadrant = 1; quadrant < 4; quadrant++) {
+                bounds[quadrant] = quadrantStart(bounds[quadrant - 1], rangeTo, level, quadrant);
+            }
+            bounds[4] = rangeTo;
+
+            int children = 0;
+            for (int quadrant = 0; quadrant < 4; quadrant++) {
+                if (bounds[quadrant + 1] > bounds[quadrant]) {
+                    children++;
+                }
+            }
+            int start = nodeCount.getAndAdd(children);
+            childStart[node] = start;
+            childCount[node] = children;
+
+            BuildTask[] tasks = new BuildTask[children];
+            int child = 0;
+            for (int quadrant = 0; quadrant < 4; quadrant++) {
+                if (bounds[quadrant + 1] > bounds[quadrant]) {
+                    tasks[child] = new BuildTask(particles, start + child, bounds[quadrant], bounds[quadrant + 1], level + 1);
+                    child++;
+                }
+            }
+            if (rangeTo - rangeFrom > PARALLEL_THRESHOLD) {
+                invokeAll(tasks);
+            } else {
+                for (BuildTask task : tasks) {
+                    task.compute();
+                }
+            }
+
+            // center of mass of the children, in quadrant order
+            double sumX = 0;
+            double sumY = 0;
+            for (int c = start; c < start + children; c++) {
+                sumX += centerX[c] * mass[c];
+                sumY += centerY[c] * mass[c];
+            }
+            mass[node] = rangeTo - rangeFrom;
+            centerX[node] = sumX / mass[node];
+            centerY[node] = sumY / mass[node];
+        }
+
+        private void buildLeaf() {
+
+            double sumX = 0;
+            double sumY = 0;
+            for (int k = rangeFrom; k < rangeTo; k++) {
+                int index = (int) keys[k];
+                sumX += particles.x[index];
+                sumY += particles.y[index];
+            }
+
+            childCount[node] = 0;
+            from[node] = rangeFrom;
+            to[node] = rangeTo;
+            mass[node] = rangeTo - rangeFrom;
+            centerX[node] = sumX / mass[node];
+            centerY[node] = sumY / mass[node];
+        }
+
+        // first key in [low, high) with at least the given quadrant at the level
+        private int quadrantStart(int low, int high, int level, int quadrant) {
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (quadrant(middle, level) < quadrant) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Stack for the traversal of addForce, one per thread
+     */
+    public int[] createStack() {
+        return new int[4 * (LEVELS + 2)];
+    }
+
+    /**
+     * Attraction of all other particles on the particle with the given index, added to the force vector.
+     * Nodes which appear smaller than the opening angle from the particle are treated as a single mass.
+     */
+    public void addForce(ParticleStore particles, int index, double gravity, double openingAngle, Vector2D force, int[] stack) {
+
+        if (nodeCount.get() == 0) {
+            return;
+        }
+
+        double x = particles.x[index];
+        double y = particles.y[index];
+        double openingAngleSquared = openingAngle * openingAngle;
+
+        double forceX = 0;
+        double forceY = 0;
+
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            double dx = centerX[node] - x;
+            double dy = centerY[node] - y;
+            double distanceSquared = dx * dx + dy * dy;
+
+            if (childCount[node] == 0) {
+                // leaf: every particle on its own
+                for (int k = from[node]; k < to[node]; k++) {
+                    int other = (int) keys[k];
+                    if (other != index) {
+                        double px = particles.x[other] - x;
+                        double py = particles.y[other] - y;
+                        double magnitude = attraction(px * px + py * py, gravity);
+                        forceX += px * magnitude;
+                        forceY += py * magnitude;
+                    }
+                }
+            } else if (extent[node] * extent[node] < openingAngleSquared * distanceSquared) {
+                // far away: the whole node at its center of mass
+                double magnitude = attraction(distanceSquared, gravity) * mass[node];
+                forceX += dx * magnitude;
+                forceY += dy * magnitude;
+            } else {
+                for (int c = childStart[node] + childCount[node] - 1; c >= childStart[node]; c--) {
+                    stack[top++] = c;
+                }
+            }
+        }
+
+        force.add(forceX, forceY);
+    }
+
+    // gravity / distance^2 of a unit mass, divided by the distance so that it can be applied to the unnormalized direction
+    private static double attraction(double distanceSquared, double gravity) {
+
+        double distance = Math.sqrt(distanceSquared);
+        if (distance == 0) {
+            return 0;
+        }
+        double constrained = Math.max(MIN_DISTANCE, Math.min(distance, MAX_DISTANCE));
+
+        return gravity / (constrained * constrained * distance);
+    }
+
+}
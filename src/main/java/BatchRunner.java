@@ -0,0 +1,104 @@
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line batch mode:
+ * Runs an experiment headless and as fast as the CPU allows, optionally repeated, and writes one .csv file per run.
+ *
+ * Repetition n of a batch with a seed runs with seed + n - 1, so every run can be replayed on its own.
+ *
+ * Particle collisions aren't controlled by the experiments, they are off unless switched on with --collisions.
+ *
+ * Usage: BatchRunner <experiment: 1, 2 or 3> [repetitions] [output directory] [seed] [--collisions] [--restitution r]
+ */
+public class BatchRunner {
+
+    public static void main(String[] args) {
+
+        if (args.length < 1) {
+            System.out.println("Usage: BatchRunner <experiment: 1, 2 or 3> [repetitions] [output directory] [seed] [--collisions] [--restitution r]");
+            System.exit(1);
+        }
+
+        Experiment experiment;
+        int repetitions;
+        String outputPath;
+        long seed;
+        FrameParameters defaults;
+        try {
+            // options may be anywhere, the other arguments are positional
+            FrameParameters.Builder builder = FrameParameters.defaults().toBuilder();
+            List<String> positional = new ArrayList<>();
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--collisions": builder.particleCollisions(true); break;
+                    case "--restitution": builder.restitution(Double.parseDouble(args[++i])); break;
+                    default: positional.add(args[i]);
+                }
+            }
+            defaults = builder.build();
+
+            experiment = Experiment.values()[Integer.parseInt(positional.get(0)) - 1];
+            repetitions = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : 1;
+            outputPath = positional.size() > 2 ? positional.get(2) : ".";
+            seed = positional.size() > 3 ? Long.parseLong(positional.get(3)) : RandomStreams.randomSeed();
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            System.out.println("Invalid arguments: " + String.join(" ", args));
+            System.exit(1);
+            return;
+        }
+
+        if (!outputPath.endsWith("/") && !outputPath.endsWith("\\")) {
+            outputPath += File.separator;
+        }
+
+        boolean failed = false;
+        for (int repetition = 1; repetition <= repetitions; repetition++) {
+
+            long startTime = System.nanoTime();
+
+            long runSeed = seed + repetition - 1;
+            ExperimentRun run = runExperiment(experiment, defaults, runSeed);
+
+            long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+            try {
+                String filePath = run.writeToCSVFile(outputPath, " #" + repetition);
+                System.out.println(experiment.getName() + " #" + repetition + " (seed " + runSeed + ") completed in " + elapsedMillis + " ms: " + filePath);
+            } catch (Exception e) {
+                System.out.println(e.getMessage());
+                failed = true;
+            }
+        }
+
+        // scripts can tell by the exit code that a file is missing
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Run the experiment on a new engine with the paddles placed like its stencil markers
+     */
+    public static ExperimentRun runExperiment(Experiment experiment, long seed) {
+        return runExperiment(experiment, FrameParameters.defaults(), seed);
+    }
+
+    /**
+     * Run the experiment with the given values for everything the experiment doesn't control, e.g. particle collisions
+     */
+    public static ExperimentRun runExperiment(Experiment experiment, FrameParameters defaults, long seed) {
+
+        SimulationEngine engine = new SimulationEngine(defaults, seed);
+        experiment.addPaddles(engine);
+
+        ExperimentRun run = new ExperimentRun(experiment, defaults,
+                ExperimentRun.DEFAULT_SAMPLE_SIZE, ExperimentRun.DEFAULT_INITIALIZATION_WINDOW, ExperimentRun.DEFAULT_FRAME_SAMPLING_WINDOW);
+        run.runToCompletion(engine);
+
+        return run;
+    }
+
+}
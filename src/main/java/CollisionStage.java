@@ -0,0 +1,149 @@
+
+import java.util.stream.IntStream;
+
+/**
+ * Collisions between the particles:
+ * Overlapping particles that approach each other exchange momentum along the line between their centers
+ * and are pushed apart. All particles have the same mass and radius.
+ *
+ * Broad phase: a grid with cells as large as a particle, so only particles in the same or adjacent cells can collide.
+ * Narrow phase: every cell is checked against itself and the neighbours east, south-east, south and south-west.
+ * The cells are coloured by (column % 3, row % 3); cells of the same colour are at least three cells apart,
+ * so the particles they change never overlap and a colour can be processed in parallel without locks.
+ */
+public class CollisionStage {
+
+    private SpatialGrid grid = new SpatialGrid(1);
+
+    /**
+     * Resolve all collisions of the current positions
+     * @param radius radius of a particle
+     * @param restitution 1 for elastic collisions, 0 for completely inelastic ones
+     * @return number of colliding pairs
+     */
+    public int apply(ParticleStore particles, double radius, double restitution, double width, double height) {
+
+        double diameter = 2 * radius;
+        if (diameter <= 0) {
+            return 0;
+        }
+        if (grid.getCellSize() != diameter) {
+            grid = new SpatialGrid(diameter);
+        }
+        grid.build(particles, width, height);
+
+        int columns = grid.getColumns();
+        int rows = grid.getRows();
+        double diameterSquared = diameter * diameter;
+        double impulseFactor = (1 + restitution) / 2;
+
+        // collisions found by the tasks of the current colour, one slot per row
+        int[] rowCollisions = new int[rows];
+        int total = 0;
+
+        for (int colour = 0; colour < 9; colour++) {
+            int firstColumn = colour % 3;
+            int firstRow = colour / 3;
+            int taskCount = (rows - firstRow + 2) / 3;
+            IntStream.range(0, taskCount).parallel().forEach(task -> {
+                int row = firstRow + 3 * task;
+                int count = 0;
+                for (int column = firstColumn; column < columns; column += 3) {
+                    count += resolveCell(particles, column, row, diameterSquared, impulseFactor);
+                }
+                rowCollisions[task] = count;
+            });
+            for (int task = 0; task < taskCount; task++) {
+                total += rowCollisions[task];
+            }
+        }
+
+        return total;
+    }
+
+    // pairs of a cell and within the half of its neighbourhood that follows it
+    private int resolveCell(ParticleStore particles, int column, int row, double diameterSquared, double impulseFactor) {
+
+        int cell = row * grid.getColumns() + column;
+        int from = grid.cellStart(cell);
+        int to = grid.cellStart(cell + 1);
+        if (from == to) {
+            return 0;
+        }
+
+        int count = 0;
+
+        // same cell
+        for (int a = from; a < to; a++) {
+            for (int b = a + 1; b < to; b++) {
+                count += resolvePair(particles, grid.particleAt(a), grid.particleAt(b), diameterSquared, impulseFactor);
+            }
+        }
+        // east, south-west, south, south-east
+        count += resolveNeighbour(particles, from, to, column + 1, row, diameterSquared, impulseFactor);
+        count += resolveNeighbour(particles, from, to, column - 1, row + 1, diameterSquared, impulseFactor);
+        count += resolveNeighbour(particles, from, to, column, row + 1, diameterSquared, impulseFactor);
+        count += resolveNeighbour(particles, from, to, column + 1, row + 1, diameterSquared, impulseFactor);
+
+        return count;
+    }
+
+    private int resolveNeighbour(ParticleStore particles, int from, int to, int column, int row, double diameterSquared, double impulseFactor) {
+
+        if (column < 0 || column >= grid.getColumns() || row >= grid.getRows()) {
+            return 0;
+        }
+
+        int cell = row * grid.getColumns() + column;
+        int neighbourFrom = grid.cellStart(cell);
+        int neighbourTo = grid.cellStart(cell + 1);
+
+        int count = 0;
+        for (int a = from; a < to; a++) {
+            for (int b = neighbourFrom; b < neighbourTo; b++) {
+                count += resolvePair(particles, grid.particleAt(a), grid.particleAt(b), diameterSquared, impulseFactor);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Collision response of two particles of equal mass
+     * @return 1 if they overlap, 0 otherwise
+     */
+    private static int resolvePair(ParticleStore particles, int i, int j, double diameterSquared, double impulseFactor) {
+
+        double dx = particles.x[j] - particles.x[i];
+        double dy = particles.y[j] - particles.y[i];
+        double distanceSquared = dx * dx + dy * dy;
+        if (distanceSquared >= diameterSquared || distanceSquared == 0) {
+            return 0;
+        }
+
+        // collision normal from i to j
+        double distance = Math.sqrt(distanceSquared);
+        double normalX = dx / distance;
+        double normalY = dy / distance;
+
+        // exchange momentum along the normal if the particles approach each other
+        double approach = (particles.vx[i] - particles.vx[j]) * normalX + (particles.vy[i] - particles.vy[j]) * normalY;
+        if (approach > 0) {
+            double impulse = impulseFactor * approach;
+            particles.vx[i] -= impulse * normalX;
+            particles.vy[i] -= impulse * normalY;
+            particles.vx[j] += impulse * normalX;
+            particles.vy[j] += impulse * normalY;
+        }
+
+        // push both particles apart by half the overlap
+        double correction = (Math.sqrt(diameterSquared) - distance) / 2;
+        particles.x[i] -= correction * normalX;
+        particles.y[i] -= correction * normalY;
+        particles.x[j] += correction * normalX;
+        particles.y[j] += correction * normalY;
+
+        return 1;
+    }
+
+}
@@ -0,0 +1,71 @@
+
+/**
+ * Linear gradient between colour stops, sampled into a lookup table of non-premultiplied ARGB colours.
+ * Doesn't depend on JavaFX, so colours can be looked up from any thread.
+ */
+public class ColorRamp {
+
+    private final int[] colors;
+
+    /**
+     * @param offsets positions of the stops in [0, 1], ascending
+     * @param stopColors ARGB colour of every stop
+     * @param size number of entries of the lookup table, the first one is at offset 0 and the last one at offset 1
+     */
+    public ColorRamp(double[] offsets, int[] stopColors, int size) {
+
+        colors = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            double position = size > 1 ? (double) i / (size - 1) : 0;
+            // stop after the position, the ones before and after the stops are clamped
+            int stop = 0;
+            while (stop < offsets.length && offsets[stop] < position) {
+                stop++;
+            }
+            if (stop == 0) {
+                colors[i] = stopColors[0];
+            } else if (stop == offsets.length) {
+                colors[i] = stopColors[offsets.length - 1];
+            } else {
+                double fraction = (position - offsets[stop - 1]) / (offsets[stop] - offsets[stop - 1]);
+                colors[i] = interpolate(stopColors[stop - 1], stopColors[stop], fraction);
+            }
+        }
+    }
+
+    /**
+     * Colours of the particles depending on their lifespan: transparent black -> red -> yellow -> white
+     */
+    public static ColorRamp lifeSpan(int size) {
+        return new ColorRamp(new double[] { 0, 0.3, 0.9, 1 }, new int[] { 0x00000000, 0xFFFF0000, 0xFFFFFF00, 0xFFFFFFFF }, size);
+    }
+
+    private static int interpolate(int from, int to, double fraction) {
+
+        int color = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int a = (from >>> shift) & 0xFF;
+            int b = (to >>> shift) & 0xFF;
+            color |= (int) Math.round(a + (b - a) * fraction) << shift;
+        }
+
+        return color;
+    }
+
+    public int size() {
+        return colors.length;
+    }
+
+    public int get(int index) {
+        return colors[index];
+    }
+
+    /**
+     * Colour at the given position in [0, 1], values outside are clamped
+     */
+    public int at(double position) {
+        return colors[(int) Math.round(Math.max(0, Math.min(position, 1)) * (colors.length - 1))];
+    }
+
+}
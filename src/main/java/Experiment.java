@@ -0,0 +1,119 @@
+
+/**
+ * The automated experiments:
+ * Each experiment adjusts one parameter over the course of the run while the others are locked to fixed values.
+ * The paddle layouts are the ones shown by the stencil markers.
+ */
+public enum Experiment {
+
+    /**
+     * adjusts: REPELLER STRENGTH: START=0, END=2000
+     * controls: attractor strength (MAX=2000)
+     */
+    FIRST("Experiment 1",
+            new double[][] { { 500, 510 } },
+            new double[][] { { 500, 340 } }) {
+        @Override
+        FrameParameters parametersAt(FrameParameters defaults, double progressComplete) {
+            double endValue = 2000;
+            double attractorStrengthControl = 2000;
+            return defaults
+                    .toBuilder()
+                    .repellerStrength(endValue * progressComplete)
+                    .attractorStrength(attractorStrengthControl)
+                    .build();
+        }
+    },
+
+    /**
+     * adjusts GRAVITY X: START=-0.5, MID=0.5, END=-0.5
+     * controls: emitter frequency (MAX=150), particle max speed (MAX=10)
+     */
+    SECOND("Experiment 2",
+            new double[][] { { 500, 225 } },
+            new double[][] { { 250, 340 }, { 750, 340 } }) {
+        @Override
+        FrameParameters parametersAt(FrameParameters defaults, double progressComplete) {
+            double result;
+            // logic for gravity x slider value
+            if (progressComplete <= 0.2) {
+                result = -0.5;
+            } else if (progressComplete <= 0.4) {
+                result = 0.5;
+            } else if (progressComplete <= 0.6) {
+                result = -0.5;
+            } else if (progressComplete <= 0.8) {
+                result = 0.5;
+            } else {
+                result = -0.5;
+            }
+            return defaults
+                    .toBuilder()
+                    .gravityX(result)
+                    .emitterFrequency(150)
+                    .particleMaxSpeed(10)
+                    .build();
+        }
+    },
+
+    /**
+     * adjusts MAX PARTICLE SPEED: START=10, END=0
+     * controls: emitter frequency (VALUE=150), emitter location y (MAX=680), gravity y (MIN=-0.5), paddle strength (MAX=2000)
+     */
+    THIRD("Experiment 3",
+            new double[][] { { 500, 170 } },
+            new double[][] { { 333, 340 }, { 666, 340 }, { 500, 510 } }) {
+        @Override
+        FrameParameters parametersAt(FrameParameters defaults, double progressComplete) {
+            double endValue = 10;
+            return defaults
+                    .toBuilder()
+                    .particleMaxSpeed(endValue - endValue * progressComplete)
+                    .emitterFrequency(150)
+                    .emitterLocationY(680)
+                    .gravityY(-0.5)
+                    .attractorStrength(2000)
+                    .repellerStrength(2000)
+                    .build();
+        }
+    };
+
+    private final String name;
+    // stencil locations: { x, y }
+    private final double[][] attractorLocations;
+    private final double[][] repellerLocations;
+
+    Experiment(String name, double[][] attractorLocations, double[][] repellerLocations) {
+        this.name = name;
+        this.attractorLocations = attractorLocations;
+        this.repellerLocations = repellerLocations;
+    }
+
+    /**
+     * Parameters during the experiment; every parameter that isn't adjusted or controlled is locked to its default.
+     * The initialization window runs with the parameters at progress 0.
+     * @param progressComplete collected samples / sample size
+     */
+    abstract FrameParameters parametersAt(FrameParameters defaults, double progressComplete);
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Place attractors and repellers like the stencil markers of this experiment
+     */
+    public void addPaddles(SimulationEngine engine) {
+        for (double[] location : attractorLocations) {
+            engine.addAttractor(new Paddle(new Vector2D(location[0], location[1]), Paddle.ATTRACTING));
+        }
+        for (double[] location : repellerLocations) {
+            engine.addRepeller(new Paddle(new Vector2D(location[0], location[1]), Paddle.REPELLING));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
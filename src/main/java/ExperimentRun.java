@@ -0,0 +1,310 @@
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.opencsv.CSVWriter;
+
+/**
+ * A single run of an experiment:
+ * Drives the parameters of the engine, collects the data after the initialization window and aggregates it into samples.
+ * Doesn't depend on JavaFX, so experiments can run with or without the user interface.
+ */
+public class ExperimentRun implements SimulationEngine.FrameListener {
+
+    public enum Phase { INITIALIZING, SAMPLING, COMPLETED }
+
+    // defaults of the settings panel
+    public static final int DEFAULT_SAMPLE_SIZE = 50;
+    public static final int DEFAULT_INITIALIZATION_WINDOW = 250;
+    public static final int DEFAULT_FRAME_SAMPLING_WINDOW = 20;
+
+    // null for runs with constant parameters
+    private final Experiment experiment;
+    private final String name;
+    private final FrameParameters defaults;
+
+    // number of data points gathered before processing. 1 sample = 1 list element added.
+    private final int sampleSize;
+    // frame size for initialization
+    private final int initializationWindow;
+    // desired frame sampling.
+    private final int frameSamplingWindow;
+
+    // processing lists:
+    private final List<Double> collisionsList = new ArrayList<>();
+    private final List<Double> avgVelocitiesList = new ArrayList<>();
+    private final List<Double> avgAccelerationsList = new ArrayList<>();
+    private final List<Double> particleCollisionsList = new ArrayList<>();
+    // object used for data aggregation:
+    private final DataGroup dataGroup = new DataGroup();
+
+    // written by the simulation, may be read by the user interface
+    private volatile Phase phase = Phase.INITIALIZING;
+    private boolean parametersInitialized = false;
+    private int initializationCounter = 0;
+    private volatile FrameParameters parameters;
+    private volatile int samples = 0;
+    // seed of the engine, to replay the run
+    private long seed;
+    // particles within this distance of the paddle count as collisions, 0 for the particles in the pixel of the paddle's position
+    private double hitRadius = 0;
+    // collisions of every paddle during sampling, attractors first
+    private long[] paddleCollisions = new long[0];
+
+    public ExperimentRun(Experiment experiment, FrameParameters defaults, int sampleSize, int initializationWindow, int frameSamplingWindow) {
+
+        this.experiment = experiment;
+        this.name = experiment.getName();
+        this.defaults = defaults;
+        this.sampleSize = sampleSize;
+        this.initializationWindow = initializationWindow;
+        this.frameSamplingWindow = frameSamplingWindow;
+
+        this.parameters = parametersAt(0);
+    }
+
+    /**
+     * Run which keeps the given parameters for its whole duration, e.g. one point of a parameter sweep
+     */
+    public ExperimentRun(String name, FrameParameters parameters, int sampleSize, int initializationWindow, int frameSamplingWindow) {
+
+        this.experiment = null;
+        this.name = name;
+        this.defaults = parameters;
+        this.sampleSize = sampleSize;
+        this.initializationWindow = initializationWindow;
+        this.frameSamplingWindow = frameSamplingWindow;
+
+        this.parameters = parametersAt(0);
+    }
+
+    private FrameParameters parametersAt(double progressComplete) {
+        return experiment != null ? experiment.parametersAt(defaults, progressComplete) : defaults;
+    }
+
+    // called from the engine after the forces of a frame were applied.
+    @Override
+    public void onForcesApplied(SimulationEngine engine) {
+
+        if (phase == Phase.COMPLETED) {
+            return;
+        }
+        // Track all data once the parameters are initialized
+        if (parametersInitialized) {
+            // Data collection and logging: all paddles are measured, the data lists track the first attractor
+            PaddleMetrics metrics = engine.measurePaddles(hitRadius);
+            if (metrics.getAttractorCount() == 0) {
+                // without an attractor the data would silently be taken from a repeller
+                throw new IllegalStateException(name + " needs an attractor, its data tracks the first one");
+            }
+            int attractor = metrics.attractor(0);
+            retrieveData(metrics.getCollisions(attractor), metrics.getAverageVelocity(attractor), metrics.getAverageAcceleration(attractor),
+                    engine.getParticleCollisions());
+            if (phase == Phase.SAMPLING) {
+                addPaddleCollisions(metrics);
+            }
+        } else {
+            engine.setParameters(parameters);
+            seed = engine.getSeed();
+            parametersInitialized = true;
+        }
+        // Initialization check:
+        if (initializationCounter == initializationWindow) {
+            // zero out the lists
+            if (phase == Phase.INITIALIZING) {
+                resetArrayLists();
+                phase = Phase.SAMPLING;
+            }
+            // perform automated parameter controls
+            parameters = parametersAt(getProgress());
+            engine.setParameters(parameters);
+            // Test Completed:
+            if (collisionsList.size() == sampleSize) {
+                phase = Phase.COMPLETED;
+                SimulationEvents.experimentCompleted(name, seed, samples, engine.getFrame());
+            }
+        } else {
+            initializationCounter++;
+        }
+    }
+
+    /**
+     * Step the engine until the experiment is completed
+     * @throws IllegalStateException if the engine has no attractor to measure
+     */
+    public void runToCompletion(SimulationEngine engine) {
+
+        engine.setFrameListener(this);
+
+        while (phase != Phase.COMPLETED) {
+            engine.step();
+        }
+
+        engine.setFrameListener(null);
+    }
+
+    private void addPaddleCollisions(PaddleMetrics metrics) {
+
+        if (paddleCollisions.length != metrics.paddleCount()) {
+            paddleCollisions = Arrays.copyOf(paddleCollisions, metrics.paddleCount());
+        }
+        for (int paddle = 0; paddle < metrics.paddleCount(); paddle++) {
+            paddleCollisions[paddle] += metrics.getCollisions(paddle);
+        }
+    }
+
+    // aggregates all data and pushes to each list during a given frame.
+    private void retrieveData(double collisionsDetectedThisFrame, double averagedVelocityThisFrame, double averagedAccelerationThisFrame,
+                              double particleCollisionsThisFrame) {
+
+        dataGroup.iteration++;
+
+        dataGroup.sumOfCollisions += collisionsDetectedThisFrame;
+        dataGroup.sumOfVelocityAverages += averagedVelocityThisFrame;
+        dataGroup.sumOfAccelerationAverages += averagedAccelerationThisFrame;
+        dataGroup.sumOfParticleCollisions += particleCollisionsThisFrame;
+
+        if (dataGroup.iteration == frameSamplingWindow) {
+            // adds relevant data points to the list after the N-th collection
+            collisionsList.add(dataGroup.sumOfCollisions);
+            avgVelocitiesList.add(dataGroup.averagedVelocityValue());
+            avgAccelerationsList.add(dataGroup.averagedAccelerationValue());
+            particleCollisionsList.add(dataGroup.sumOfParticleCollisions);
+            samples = collisionsList.size();
+            SimulationEvents.experimentSample(name, phase.name(), samples, dataGroup.sumOfCollisions, dataGroup.averagedVelocityValue(),
+                    dataGroup.averagedAccelerationValue(), dataGroup.sumOfParticleCollisions);
+            // reset DataSet
+            dataGroup.iteration = 0;
+            dataGroup.sumOfCollisions = 0;
+            dataGroup.sumOfVelocityAverages = 0;
+            dataGroup.sumOfAccelerationAverages = 0;
+            dataGroup.sumOfParticleCollisions = 0;
+        }
+    }
+
+    private void resetArrayLists() {
+        collisionsList.clear();
+        avgVelocitiesList.clear();
+        avgAccelerationsList.clear();
+        particleCollisionsList.clear();
+        samples = 0;
+    }
+
+    public void logDataToConsole() {
+        Statistics statistics = new Statistics();
+        System.out.println("\n"
+                + "Test Results:" + "\t" + name + "\n"
+                + "Seed:" + "\t" + seed + "\n"
+                + "Collisions List:" + "\t" + collisionsList + "\n"
+                + "Avg. Velocities List:" + "\t" + avgVelocitiesList + "\n"
+                + "Avg. Accelerations List:" + "\t" + avgAccelerationsList + "\n"
+                + "Particle Collisions List:" + "\t" + particleCollisionsList + "\n"
+                + "Average Collisions During Exp:" + "\t" + statistics.calculateMean(collisionsList) + "\n"
+                + "Average Velocity During Exp:" + "\t" + statistics.calculateMean(avgVelocitiesList) + "\n"
+                + "Average Acceleration During Exp:" + "\t" + statistics.calculateMean(avgAccelerationsList) + "\n"
+                + "Average Particle Collisions During Exp:" + "\t" + statistics.calculateMean(particleCollisionsList) + "\n"
+                + "Collisions per Paddle (attractors, repellers):" + "\t" + Arrays.toString(paddleCollisions) + "\n"
+        );
+    }
+
+    /**
+     * Write the collected data to a .csv file
+     * @param outputPath directory of the file
+     * @param label appended to the file name, e.g. to tell repeated runs apart; may be empty
+     * @return path of the written file
+     */
+    public String writeToCSVFile(String outputPath, String label) throws IOException {
+
+        List<String[]> stringArray = new ArrayList<>();
+
+        String[] dataLabelRow = { "Collisions", "Avg-Velocity", "Avg-Accel", "Particle-Collisions" };
+        stringArray.add(dataLabelRow);
+        for (int i = 0; i < collisionsList.size(); i++) {
+            // every iteration adds one row to the .csv
+            String[] dataValuesRow = { collisionsList.get(i).toString(), avgVelocitiesList.get(i).toString(), avgAccelerationsList.get(i).toString(),
+                    particleCollisionsList.get(i).toString() };
+            stringArray.add(dataValuesRow);
+        }
+
+        final SimpleDateFormat sdf = new SimpleDateFormat("MM-dd-yyyy @ HH.mm.ss");
+        Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+        String filePath = outputPath
+                + name + " ("
+                + sdf.format(timestamp)
+                + ")" + label + ".csv";
+        filePath = filePath.replace("\\", "/");
+
+        CSVWriter writer = new CSVWriter(new FileWriter(filePath));
+        writer.writeAll(stringArray);
+        writer.close();
+
+        return filePath;
+    }
+
+    public Experiment getExperiment() {
+        return experiment;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public FrameParameters getParameters() {
+        return parameters;
+    }
+
+    // collected samples / sample size
+    public double getProgress() {
+        return (double) samples / (double) sampleSize;
+    }
+
+    public List<Double> getCollisionsList() {
+        return collisionsList;
+    }
+
+    public List<Double> getAvgVelocitiesList() {
+        return avgVelocitiesList;
+    }
+
+    public List<Double> getAvgAccelerationsList() {
+        return avgAccelerationsList;
+    }
+
+    public List<Double> getParticleCollisionsList() {
+        return particleCollisionsList;
+    }
+
+    /**
+     * Count hits within the given distance of the paddle, e.g. paddleRadius / 2 for the whole paddle.
+     * Has to be set before the run starts.
+     */
+    public void setHitRadius(double hitRadius) {
+        this.hitRadius = hitRadius;
+    }
+
+    public double getHitRadius() {
+        return hitRadius;
+    }
+
+    // Helper class for data reporting
+    private class DataGroup {
+        int iteration = 0;
+        double sumOfCollisions = 0;
+        double sumOfVelocityAverages = 0.0;
+        double sumOfAccelerationAverages = 0.0;
+        double sumOfParticleCollisions = 0;
+        // returns mean of the averages collected / number of iterations
+        double averagedVelocityValue() { return sumOfVelocityAverages / (double) iteration; }
+        double averagedAccelerationValue() { return sumOfAccelerationAverages / (double) iteration; }
+    }
+
+}
@@ -0,0 +1,157 @@
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Cached force field of the paddles:
+ * The summed force of all attractors and repellers is sampled on a regular grid over the canvas and interpolated
+ * bilinearly in between, so the cost per particle doesn't depend on the number of paddles.
+ * The grid is only recalculated when a paddle is moved, added or removed, or a strength, the range or the resolution changes.
+ */
+public class ForceField {
+
+    // smaller spacings are treated as "no field", they would need a grid point per fraction of a pixel
+    static final double MIN_SPACING = 1;
+    // fields with more grid points aren't cached, the forces are calculated directly instead
+    static final long MAX_POINTS = 1 << 22;
+
+    private double spacing = 0;
+    private int columns = 0;
+    private int rows = 0;
+
+    // force at the grid points, row by row
+    private double[] forceX = new double[0];
+    private double[] forceY = new double[0];
+
+    // input of the current field: spacing, size, strengths, range and position and factor of every paddle
+    private double[] signature = new double[0];
+
+    /**
+     * Whether the given spacing of FrameParameters.forceFieldResolution enables the field
+     */
+    public static boolean isEnabled(double spacing) {
+        return spacing >= MIN_SPACING;
+    }
+
+    /**
+     * Recalculate the field if its input changed since the last call.
+     * A field with too many grid points for the canvas is left empty, so that addForce rejects all locations.
+     * @return true if the field was recalculated
+     */
+    public boolean update(List<Paddle> attractors, List<Paddle> repellers, FrameParameters parameters) {
+
+        double[] signature = signature(attractors, repellers, parameters);
+        if (Arrays.equals(signature, this.signature)) {
+            return false;
+        }
+
+        this.signature = signature;
+
+        spacing = Math.max(MIN_SPACING, parameters.forceFieldResolution);
+        long columns = (long) Math.ceil(parameters.canvasWidth / spacing) + 1;
+        long rows = (long) Math.ceil(parameters.canvasHeight / spacing) + 1;
+        if (columns * rows > MAX_POINTS) {
+            this.columns = 0;
+            this.rows = 0;
+            return true;
+        }
+        this.columns = (int) columns;
+        this.rows = (int) rows;
+        fill(attractors, repellers, parameters);
+
+        return true;
+    }
+
+    private void fill(List<Paddle> attractors, List<Paddle> repellers, FrameParameters parameters) {
+
+        int columns = this.columns;
+        int rows = this.rows;
+        double spacing = this.spacing;
+
+        if (forceX.length < columns * rows) {
+            forceX = new double[columns * rows];
+            forceY = new double[columns * rows];
+        }
+
+        double attractorStrength = parameters.attractorStrength;
+        double repellerStrength = parameters.repellerStrength;
+        double range = parameters.paddleRange;
+
+        // every row of grid points is an independent task
+        IntStream.range(0, rows).parallel().forEach(row -> {
+            Vector2D force = new Vector2D(0, 0);
+            for (int column = 0; column < columns; column++) {
+                double x = column * spacing;
+                double y = row * spacing;
+                force.set(0, 0);
+                for (Paddle attractor : attractors) {
+                    attractor.addForce(x, y, attractorStrength, range, force);
+                }
+                for (Paddle repeller : repellers) {
+                    repeller.addForce(x, y, repellerStrength, range, force);
+                }
+                forceX[row * columns + column] = force.x;
+                forceY[row * columns + column] = force.y;
+            }
+        });
+    }
+
+    private static double[] signature(List<Paddle> attractors, List<Paddle> repellers, FrameParameters parameters) {
+
+        int paddles = attractors.size() + repellers.size();
+        double[] signature = new double[6 + 3 * paddles];
+
+        signature[0] = parameters.forceFieldResolution;
+        signature[1] = parameters.canvasWidth;
+        signature[2] = parameters.canvasHeight;
+        signature[3] = parameters.attractorStrength;
+        signature[4] = parameters.repellerStrength;
+        signature[5] = parameters.paddleRange;
+
+        int i = 6;
+        for (Paddle attractor : attractors) {
+            signature[i++] = attractor.position.x;
+            signature[i++] = attractor.position.y;
+            signature[i++] = attractor.factor;
+        }
+        for (Paddle repeller : repellers) {
+            signature[i++] = repeller.position.x;
+            signature[i++] = repeller.position.y;
+            signature[i++] = repeller.factor;
+        }
+
+        return signature;
+    }
+
+    /**
+     * Interpolated force at the given location, added to the force vector
+     * @return false if the location is outside of the field, the force has to be calculated directly then
+     */
+    public boolean addForce(double x, double y, Vector2D force) {
+
+        double gridX = x / spacing;
+        double gridY = y / spacing;
+        if (!(gridX >= 0 && gridY >= 0 && gridX < columns - 1 && gridY < rows - 1)) {
+            return false;
+        }
+
+        int column = (int) gridX;
+        int row = (int) gridY;
+        double fractionX = gridX - column;
+        double fractionY = gridY - row;
+
+        int topLeft = row * columns + column;
+        int bottomLeft = topLeft + columns;
+
+        double topX = forceX[topLeft] + (forceX[topLeft + 1] - forceX[topLeft]) * fractionX;
+        double bottomX = forceX[bottomLeft] + (forceX[bottomLeft + 1] - forceX[bottomLeft]) * fractionX;
+        double topY = forceY[topLeft] + (forceY[topLeft + 1] - forceY[topLeft]) * fractionX;
+        double bottomY = forceY[bottomLeft] + (forceY[bottomLeft + 1] - forceY[bottomLeft]) * fractionX;
+
+        force.add(topX + (bottomX - topX) * fractionY, topY + (bottomY - topY) * fractionY);
+
+        return true;
+    }
+
+}
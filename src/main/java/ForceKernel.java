@@ -0,0 +1,168 @@
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Force evaluation stage:
+ * Accumulates gravity and the forces of all attractors and repellers into the acceleration of each particle,
+ * optionally also the attraction between the particles. The paddle forces are either calculated for every particle
+ * or taken from a cached force field.
+ * Every particle is visited once per frame, the particles are processed in parallel chunks.
+ * Without a force field and range the paddle forces are added paddle by paddle over a whole chunk with the array
+ * kernels, which are vectorized on Java 17.
+ *
+ * Paddles with a limited range only act on the particles around them: these are looked up in the spatial grid,
+ * so the paddle cost depends on the number of particles near the paddles instead of the number of all particles.
+ */
+public class ForceKernel {
+
+    // rebuilt every frame in which the particles attract each other
+    private final BarnesHutTree tree = new BarnesHutTree();
+    // recalculated when the paddles change, if enabled
+    private final ForceField forceField = new ForceField();
+
+    // particle-paddle pairs that weren't evaluated in the last frame because the particle was out of range
+    private volatile long skippedPairs = 0;
+
+    /**
+     * @param grid index of the current positions, only used if the paddles have a limited range
+     */
+    public void apply(ParticleStore particles, List<Paddle> attractors, List<Paddle> repellers, FrameParameters parameters, SpatialGrid grid) {
+
+        double gravityX = parameters.gravityX;
+        double gravityY = parameters.gravityY;
+        double attractorStrength = parameters.attractorStrength;
+        double repellerStrength = parameters.repellerStrength;
+        double paddleRange = parameters.paddleRange;
+        double particleGravity = parameters.particleGravity;
+        double openingAngle = parameters.openingAngle;
+
+        boolean cachedField = ForceField.isEnabled(parameters.forceFieldResolution);
+        if (cachedField) {
+            forceField.update(attractors, repellers, parameters);
+        }
+
+        // limited range: the paddle forces of the particles in the grid are added per paddle afterwards
+        boolean culled = paddleRange > 0 && !cachedField;
+
+        boolean interaction = particleGravity != 0;
+        if (interaction) {
+            tree.build(particles);
+        }
+
+        // neither field nor range: every paddle acts on every particle, see applyDirect
+        boolean direct = !cachedField && paddleRange <= 0;
+
+        particles.forEachChunk((chunk, from, to) -> {
+            if (direct) {
+                applyDirect(particles, from, to, attractors, repellers, parameters, interaction ? tree.createStack() : null);
+                return;
+            }
+            // one accumulator per chunk, so no objects are allocated per particle
+            Vector2D force = new Vector2D(0, 0);
+            int[] stack = interaction ? tree.createStack() : null;
+            for (int i = from; i < to; i++) {
+                double x = particles.x[i];
+                double y = particles.y[i];
+                // gravity
+                force.set(gravityX, gravityY);
+                // attractors and repellers, directly if there is no field or the particle is outside of it
+                if (culled ? !grid.isIndexed(x, y) : !cachedField || !forceField.addForce(x, y, force)) {
+                    for (Paddle attractor : attractors) {
+                        attractor.addForce(x, y, attractorStrength, paddleRange, force);
+                    }
+                    for (Paddle repeller : repellers) {
+                        repeller.addForce(x, y, repellerStrength, paddleRange, force);
+                    }
+                }
+                // other particles
+                if (interaction) {
+                    tree.addForce(particles, i, particleGravity, openingAngle, force, stack);
+                }
+                particles.applyForce(i, force.x, force.y);
+            }
+        });
+
+        if (culled) {
+            long evaluatedPairs = 0;
+            for (Paddle attractor : attractors) {
+                evaluatedPairs += applyInRange(particles, attractor, attractorStrength, paddleRange, grid);
+            }
+            for (Paddle repeller : repellers) {
+                evaluatedPairs += applyInRange(particles, repeller, repellerStrength, paddleRange, grid);
+            }
+            // particles outside of the grid were evaluated directly
+            skippedPairs = (long) grid.indexedCount() * (attractors.size() + repellers.size()) - evaluatedPairs;
+        } else {
+            skippedPairs = 0;
+        }
+    }
+
+    /**
+     * Forces of a chunk paddle by paddle with the array kernels. The acceleration is zero before the forces are applied,
+     * so adding the forces one by one gives the same sums as accumulating them per particle.
+     */
+    private void applyDirect(ParticleStore particles, int from, int to, List<Paddle> attractors, List<Paddle> repellers,
+                             FrameParameters parameters, int[] stack) {
+
+        // gravity
+        Kernels.addConstantForce(particles, from, to, parameters.gravityX, parameters.gravityY);
+        // attractors and repellers
+        for (Paddle attractor : attractors) {
+            Kernels.addPaddleForce(particles, from, to, attractor, parameters.attractorStrength);
+        }
+        for (Paddle repeller : repellers) {
+            Kernels.addPaddleForce(particles, from, to, repeller, parameters.repellerStrength);
+        }
+        // other particles
+        if (stack != null) {
+            Vector2D force = new Vector2D(0, 0);
+            for (int i = from; i < to; i++) {
+                force.set(0, 0);
+                tree.addForce(particles, i, parameters.particleGravity, parameters.openingAngle, force, stack);
+                particles.applyForce(i, force.x, force.y);
+            }
+        }
+    }
+
+    /**
+     * Add the force of the paddle to all indexed particles within its range, the rows of cells are processed in parallel
+     * @return number of particles within the range
+     */
+    private int applyInRange(ParticleStore particles, Paddle paddle, double strength, double range, SpatialGrid grid) {
+
+        double paddleX = paddle.position.x;
+        double paddleY = paddle.position.y;
+        int firstRow = grid.firstHitRow(paddleY, range);
+        int lastRow = grid.lastHitRow(paddleY, range);
+        if (lastRow < firstRow) {
+            return 0;
+        }
+
+        // number of particles per row
+        int[] evaluated = new int[lastRow - firstRow + 1];
+
+        IntStream.rangeClosed(firstRow, lastRow).parallel().forEach(row -> {
+            Vector2D force = new Vector2D(0, 0);
+            int[] count = { 0 };
+            grid.forEachHitInRow(particles, paddleX, paddleY, range, row, index -> {
+                force.set(0, 0);
+                paddle.addForce(particles.x[index], particles.y[index], strength, force);
+                particles.applyForce(index, force.x, force.y);
+                count[0]++;
+            });
+            evaluated[row - firstRow] = count[0];
+        });
+
+        int total = 0;
+        for (int count : evaluated) {
+            total += count;
+        }
+
+        return total;
+    }
+
+    public long getSkippedPairs() {
+        return skippedPairs;
+    }
+
+}
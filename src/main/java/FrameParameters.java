@@ -0,0 +1,323 @@
+
+/**
+ * Immutable snapshot of the simulation settings:
+ * Captured once at the start of a frame, so the per-particle loops only read final primitive fields
+ * instead of JavaFX properties and don't depend on the FX thread.
+ */
+public final class FrameParameters {
+
+    // defaults, same as the initial values of the settings panel
+    public static final double DEFAULT_CANVAS_WIDTH = 1000;
+    public static final double DEFAULT_CANVAS_HEIGHT = 680;
+    public static final double DEFAULT_GRAVITY_X = 0;
+    public static final double DEFAULT_GRAVITY_Y = 0;
+    public static final double DEFAULT_ATTRACTOR_STRENGTH = 500;
+    public static final double DEFAULT_REPELLER_STRENGTH = 500;
+    public static final double DEFAULT_PADDLE_RADIUS = 75;
+    public static final double DEFAULT_PADDLE_RANGE = 0;
+    public static final int DEFAULT_EMITTER_FREQUENCY = 100;
+    public static final double DEFAULT_EMITTER_LOCATION_Y = 340;
+    public static final double DEFAULT_PARTICLE_SIZE = 1.75;
+    public static final double DEFAULT_PARTICLE_LIFE_SPAN_MAX = 256;
+    public static final double DEFAULT_PARTICLE_MAX_SPEED = 4;
+    public static final double DEFAULT_PARTICLE_GRAVITY = 0;
+    public static final double DEFAULT_OPENING_ANGLE = 0.5;
+    public static final boolean DEFAULT_PARTICLE_COLLISIONS = false;
+    public static final double DEFAULT_RESTITUTION = 1;
+    public static final double DEFAULT_FORCE_FIELD_RESOLUTION = 0;
+
+    // canvas
+    public final double canvasWidth;
+    public final double canvasHeight;
+    // forces
+    public final double gravityX;
+    public final double gravityY;
+    public final double attractorStrength;
+    public final double repellerStrength;
+    public final double paddleRadius;
+    // distance beyond which the paddles don't act on particles, 0 = unlimited
+    public final double paddleRange;
+    // emitter
+    public final int emitterFrequency;
+    public final double emitterWidth;
+    public final double emitterLocationY;
+    // particles
+    public final double particleWidth;
+    public final double particleHeight;
+    public final double particleLifeSpanMax;
+    public final double particleMaxSpeed;
+    // interaction between particles: strength of the attraction, 0 disables it, and accuracy of the Barnes-Hut approximation
+    public final double particleGravity;
+    public final double openingAngle;
+    // collisions between the particles, with 1 = elastic, 0 = inelastic
+    public final boolean particleCollisions;
+    public final double restitution;
+    // distance of the grid points of the cached paddle force field in pixels, below 1 (e.g. 0) calculates the forces for every particle
+    public final double forceFieldResolution;
+
+    private FrameParameters(Builder builder) {
+
+        this.canvasWidth = builder.canvasWidth;
+        this.canvasHeight = builder.canvasHeight;
+
+        this.gravityX = builder.gravityX;
+        this.gravityY = builder.gravityY;
+        this.attractorStrength = builder.attractorStrength;
+        this.repellerStrength = builder.repellerStrength;
+        this.paddleRadius = builder.paddleRadius;
+        this.paddleRange = builder.paddleRange;
+
+        this.emitterFrequency = builder.emitterFrequency;
+        this.emitterWidth = builder.emitterWidth;
+        this.emitterLocationY = builder.emitterLocationY;
+
+        this.particleWidth = builder.particleWidth;
+        this.particleHeight = builder.particleHeight;
+        this.particleLifeSpanMax = builder.particleLifeSpanMax;
+        this.particleMaxSpeed = builder.particleMaxSpeed;
+
+        this.particleGravity = builder.particleGravity;
+        this.openingAngle = builder.openingAngle;
+        this.particleCollisions = builder.particleCollisions;
+        this.restitution = builder.restitution;
+
+        this.forceFieldResolution = builder.forceFieldResolution;
+    }
+
+    /**
+     * Parameters with the default values, for simulations without the settings panel
+     */
+    public static FrameParameters defaults() {
+        return new Builder().build();
+    }
+
+    /**
+     * Builder with the values of these parameters, e.g. to change several of them at once
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    // copies with a single value changed
+    public FrameParameters withGravityX(double gravityX) {
+        return toBuilder().gravityX(gravityX).build();
+    }
+
+    public FrameParameters withGravityY(double gravityY) {
+        return toBuilder().gravityY(gravityY).build();
+    }
+
+    public FrameParameters withAttractorStrength(double attractorStrength) {
+        return toBuilder().attractorStrength(attractorStrength).build();
+    }
+
+    public FrameParameters withRepellerStrength(double repellerStrength) {
+        return toBuilder().repellerStrength(repellerStrength).build();
+    }
+
+    public FrameParameters withEmitterFrequency(int emitterFrequency) {
+        return toBuilder().emitterFrequency(emitterFrequency).build();
+    }
+
+    public FrameParameters withEmitterLocationY(double emitterLocationY) {
+        return toBuilder().emitterLocationY(emitterLocationY).build();
+    }
+
+    public FrameParameters withParticleMaxSpeed(double particleMaxSpeed) {
+        return toBuilder().particleMaxSpeed(particleMaxSpeed).build();
+    }
+
+    public FrameParameters withParticleGravity(double particleGravity) {
+        return toBuilder().particleGravity(particleGravity).build();
+    }
+
+    public FrameParameters withOpeningAngle(double openingAngle) {
+        return toBuilder().openingAngle(openingAngle).build();
+    }
+
+    public FrameParameters withParticleCollisions(boolean particleCollisions) {
+        return toBuilder().particleCollisions(particleCollisions).build();
+    }
+
+    public FrameParameters withRestitution(double restitution) {
+        return toBuilder().restitution(restitution).build();
+    }
+
+    public FrameParameters withForceFieldResolution(double forceFieldResolution) {
+        return toBuilder().forceFieldResolution(forceFieldResolution).build();
+    }
+
+    public FrameParameters withPaddleRange(double paddleRange) {
+        return toBuilder().paddleRange(paddleRange).build();
+    }
+
+    /**
+     * Mutable collector of the values, starts with the defaults
+     */
+    public static final class Builder {
+
+        private double canvasWidth = DEFAULT_CANVAS_WIDTH;
+        private double canvasHeight = DEFAULT_CANVAS_HEIGHT;
+
+        private double gravityX = DEFAULT_GRAVITY_X;
+        private double gravityY = DEFAULT_GRAVITY_Y;
+        private double attractorStrength = DEFAULT_ATTRACTOR_STRENGTH;
+        private double repellerStrength = DEFAULT_REPELLER_STRENGTH;
+        private double paddleRadius = DEFAULT_PADDLE_RADIUS;
+        private double paddleRange = DEFAULT_PADDLE_RANGE;
+
+        private int emitterFrequency = DEFAULT_EMITTER_FREQUENCY;
+        private double emitterWidth = DEFAULT_CANVAS_WIDTH;
+        private double emitterLocationY = DEFAULT_EMITTER_LOCATION_Y;
+
+        private double particleWidth = DEFAULT_PARTICLE_SIZE;
+        private double particleHeight = DEFAULT_PARTICLE_SIZE;
+        private double particleLifeSpanMax = DEFAULT_PARTICLE_LIFE_SPAN_MAX;
+        private double particleMaxSpeed = DEFAULT_PARTICLE_MAX_SPEED;
+
+        private double particleGravity = DEFAULT_PARTICLE_GRAVITY;
+        private double openingAngle = DEFAULT_OPENING_ANGLE;
+        private boolean particleCollisions = DEFAULT_PARTICLE_COLLISIONS;
+        private double restitution = DEFAULT_RESTITUTION;
+
+        private double forceFieldResolution = DEFAULT_FORCE_FIELD_RESOLUTION;
+
+        public Builder() {
+        }
+
+        private Builder(FrameParameters parameters) {
+
+            canvasWidth = parameters.canvasWidth;
+            canvasHeight = parameters.canvasHeight;
+
+            gravityX = parameters.gravityX;
+            gravityY = parameters.gravityY;
+            attractorStrength = parameters.attractorStrength;
+            repellerStrength = parameters.repellerStrength;
+            paddleRadius = parameters.paddleRadius;
+            paddleRange = parameters.paddleRange;
+
+            emitterFrequency = parameters.emitterFrequency;
+            emitterWidth = parameters.emitterWidth;
+            emitterLocationY = parameters.emitterLocationY;
+
+            particleWidth = parameters.particleWidth;
+            particleHeight = parameters.particleHeight;
+            particleLifeSpanMax = parameters.particleLifeSpanMax;
+            particleMaxSpeed = parameters.particleMaxSpeed;
+
+            particleGravity = parameters.particleGravity;
+            openingAngle = parameters.openingAngle;
+            particleCollisions = parameters.particleCollisions;
+            restitution = parameters.restitution;
+
+            forceFieldResolution = parameters.forceFieldResolution;
+        }
+
+        public Builder canvasWidth(double canvasWidth) {
+            this.canvasWidth = canvasWidth;
+            return this;
+        }
+
+        public Builder canvasHeight(double canvasHeight) {
+            this.canvasHeight = canvasHeight;
+            return this;
+        }
+
+        public Builder gravityX(double gravityX) {
+            this.gravityX = gravityX;
+            return this;
+        }
+
+        public Builder gravityY(double gravityY) {
+            this.gravityY = gravityY;
+            return this;
+        }
+
+        public Builder attractorStrength(double attractorStrength) {
+            this.attractorStrength = attractorStrength;
+            return this;
+        }
+
+        public Builder repellerStrength(double repellerStrength) {
+            this.repellerStrength = repellerStrength;
+            return this;
+        }
+
+        public Builder paddleRadius(double paddleRadius) {
+            this.paddleRadius = paddleRadius;
+            return this;
+        }
+
+        public Builder paddleRange(double paddleRange) {
+            this.paddleRange = paddleRange;
+            return this;
+        }
+
+        public Builder emitterFrequency(int emitterFrequency) {
+            this.emitterFrequency = emitterFrequency;
+            return this;
+        }
+
+        public Builder emitterWidth(double emitterWidth) {
+            this.emitterWidth = emitterWidth;
+            return this;
+        }
+
+        public Builder emitterLocationY(double emitterLocationY) {
+            this.emitterLocationY = emitterLocationY;
+            return this;
+        }
+
+        public Builder particleWidth(double particleWidth) {
+            this.particleWidth = particleWidth;
+            return this;
+        }
+
+        public Builder particleHeight(double particleHeight) {
+            this.particleHeight = particleHeight;
+            return this;
+        }
+
+        public Builder particleLifeSpanMax(double particleLifeSpanMax) {
+            this.particleLifeSpanMax = particleLifeSpanMax;
+            return this;
+        }
+
+        public Builder particleMaxSpeed(double particleMaxSpeed) {
+            this.particleMaxSpeed = particleMaxSpeed;
+            return this;
+        }
+
+        public Builder particleGravity(double particleGravity) {
+            this.particleGravity = particleGravity;
+            return this;
+        }
+
+        public Builder openingAngle(double openingAngle) {
+            this.openingAngle = openingAngle;
+            return this;
+        }
+
+        public Builder particleCollisions(boolean particleCollisions) {
+            this.particleCollisions = particleCollisions;
+            return this;
+        }
+
+        public Builder restitution(double restitution) {
+            this.restitution = restitution;
+            return this;
+        }
+
+        public Builder forceFieldResolution(double forceFieldResolution) {
+            this.forceFieldResolution = forceFieldResolution;
+            return this;
+        }
+
+        public FrameParameters build() {
+            return new FrameParameters(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,251 @@
+import com.opencsv.CSVWriter;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Frame timing per phase:
+ * Every phase records its durations in a histogram with logarithmic buckets, so percentiles and spikes can be read
+ * without keeping the individual durations. Recording doesn't allocate; a phase is recorded by one thread at a time,
+ * but the statistics can be read from any thread.
+ */
+public class FrameProfiler {
+
+    /**
+     * Parts of a frame; the simulation phases are recorded by the engine, rendering by the caller
+     */
+    public enum Phase {
+        EMIT("Emit"),
+        // gravity, attractors, repellers and particle gravity in one pass
+        FORCES("Forces"),
+        // experiment data collection
+        METRICS("Metrics"),
+        MOVE("Move"),
+        COLLISIONS("Collisions"),
+        // expiry of the particles whose lifespan is over
+        AGE("Age"),
+        RENDER("Render");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // sub-buckets per power of two, i.e. the bucket bounds are at most 25 % apart
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // enough for durations up to Long.MAX_VALUE nanoseconds
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    /**
+     * Durations of one phase
+     */
+    public static class Histogram {
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+        // duration of the last recording
+        private volatile long last = 0;
+
+        void record(long nanos) {
+
+            nanos = Math.max(0, nanos);
+            counts.incrementAndGet(bucket(nanos));
+            count.incrementAndGet();
+            total.addAndGet(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+            last = nanos;
+        }
+
+        void reset() {
+
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                counts.set(bucket, 0);
+            }
+            count.set(0);
+            total.set(0);
+            max.set(0);
+            last = 0;
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public long getLast() {
+            return last;
+        }
+
+        public double getMean() {
+            long count = this.count.get();
+            return count == 0 ? 0 : (double) total.get() / count;
+        }
+
+        /**
+         * Upper bound of the bucket that contains the given percentile (0 - 100) of the durations, 0 if nothing was recorded
+         */
+        public long getPercentile(double percentile) {
+
+            long count = this.count.get();
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += counts.get(bucket);
+                if (seen >= rank) {
+                    // the bucket bound may exceed the largest duration
+                    return Math.min(upperBound(bucket), max.get());
+                }
+            }
+
+            return max.get();
+        }
+    }
+
+    // values below SUB_BUCKETS get a bucket each, above that SUB_BUCKETS buckets per power of two
+    static int bucket(long nanos) {
+
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int bucket) {
+
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long next = (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS);
+
+        // the last bucket ends at Long.MAX_VALUE
+        return next < 0 ? Long.MAX_VALUE : next - 1;
+    }
+
+    private final Histogram[] histograms = new Histogram[Phase.values().length];
+
+    public FrameProfiler() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    /**
+     * Record the time since the given start as a duration of the phase
+     * @return the current time, i.e. the start of the next phase
+     */
+    public long record(Phase phase, long startNanos) {
+
+        long now = System.nanoTime();
+        histograms[phase.ordinal()].record(now - startNanos);
+
+        return now;
+    }
+
+    public Histogram get(Phase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    public void reset() {
+        for (Histogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Text with a line per recorded phase: median, 99th percentile and maximum in milliseconds
+     */
+    public String summary() {
+
+        StringBuilder text = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            Histogram histogram = get(phase);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            text.append(String.format("%-11s p50 %7.3f   p99 %7.3f   max %7.3f ms%n", phase.getLabel(),
+                    millis(histogram.getPercentile(50)), millis(histogram.getPercentile(99)), millis(histogram.getMax())));
+        }
+
+        return text.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Write the statistics and the non-empty buckets of all phases to a .csv file, durations in nanoseconds
+     * @return path of the file
+     */
+    public String writeToCSVFile(String outputPath) throws IOException {
+
+        List<String[]> stringArray = new ArrayList<>();
+
+        String[] summaryLabelRow = { "Phase", "Count", "Mean", "P50", "P99", "Max" };
+        stringArray.add(summaryLabelRow);
+        for (Phase phase : Phase.values()) {
+            Histogram histogram = get(phase);
+            String[] summaryRow = { phase.getLabel(), Long.toString(histogram.getCount()), Double.toString(histogram.getMean()),
+                    Long.toString(histogram.getPercentile(50)), Long.toString(histogram.getPercentile(99)), Long.toString(histogram.getMax()) };
+            stringArray.add(summaryRow);
+        }
+
+        // the histograms themselves, e.g. to look at the shape of the spikes
+        String[] bucketLabelRow = { "Phase", "Bucket-Upper-Bound", "Count" };
+        stringArray.add(bucketLabelRow);
+        for (Phase phase : Phase.values()) {
+            Histogram histogram = get(phase);
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                long count = histogram.counts.get(bucket);
+                if (count > 0) {
+                    String[] bucketRow = { phase.getLabel(), Long.toString(upperBound(bucket)), Long.toString(count) };
+                    stringArray.add(bucketRow);
+                }
+            }
+        }
+
+        final SimpleDateFormat sdf = new SimpleDateFormat("MM-dd-yyyy @ HH.mm.ss");
+        Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+        String filePath = outputPath
+                + "Frame Timings ("
+                + sdf.format(timestamp)
+                + ").csv";
+        filePath = filePath.replace("\\", "/");
+
+        CSVWriter writer = new CSVWriter(new FileWriter(filePath));
+        writer.writeAll(stringArray);
+        writer.close();
+
+        return filePath;
+    }
+
+}
@@ -0,0 +1,117 @@
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Alternative to the ParticleRasterizer for very large numbers of particles:
+ * Counts the particles and sums up their speed per cell of a coarse grid, and colours every cell by the number of
+ * its particles (lifespan colour ramp, logarithmic) and their average speed (brightness).
+ * Apart from counting, the cost depends on the number of pixels instead of the number of particles. Doesn't depend on JavaFX.
+ */
+public class HeatmapRenderer {
+
+    // edge length of a cell in pixels
+    static final int CELL_SIZE = 2;
+    // brightness of cells whose particles don't move, cells at max speed are at full brightness
+    private static final double MIN_BRIGHTNESS = 0.4;
+
+    private final ColorRamp ramp = ColorRamp.lifeSpan(256);
+
+    private int columns = 0;
+    private int rows = 0;
+    // number of particles and sum of their speed per cell
+    private int[] counts = new int[0];
+    private double[] speeds = new double[0];
+
+    // frame buffer, always opaque
+    private int width = 0;
+    private int height = 0;
+    private int[] pixels = new int[0];
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Frame buffer of the last render call, ARGB row by row
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Draw the density of the particles of the snapshot
+     * @param maxSpeed speed of the brightest cells
+     */
+    public void render(RenderSnapshot particles, int width, int height, double maxSpeed) {
+
+        if (pixels.length != width * height) {
+            pixels = new int[width * height];
+        }
+        this.width = width;
+        this.height = height;
+
+        columns = (width + CELL_SIZE - 1) / CELL_SIZE;
+        rows = (height + CELL_SIZE - 1) / CELL_SIZE;
+        if (counts.length < columns * rows) {
+            counts = new int[columns * rows];
+            speeds = new double[columns * rows];
+        }
+        Arrays.fill(counts, 0, columns * rows, 0);
+        Arrays.fill(speeds, 0, columns * rows, 0);
+
+        // count the particles per cell, particles outside of the canvas are ignored
+        int maxCount = 0;
+        for (int i = 0; i < particles.size(); i++) {
+            double x = particles.getX(i);
+            double y = particles.getY(i);
+            if (x < 0 || y < 0 || x >= width || y >= height) {
+                continue;
+            }
+            int cell = (int) y / CELL_SIZE * columns + (int) x / CELL_SIZE;
+            counts[cell]++;
+            speeds[cell] += particles.getSpeed(i);
+            maxCount = Math.max(maxCount, counts[cell]);
+        }
+
+        // colour the cells row by row
+        double logMaxCount = Math.log1p(maxCount);
+        double speedScale = maxSpeed > 0 ? 1 / maxSpeed : 1;
+        IntStream.range(0, rows).parallel().forEach(row -> {
+            int top = row * CELL_SIZE;
+            int bottom = Math.min(top + CELL_SIZE, height);
+            for (int column = 0; column < columns; column++) {
+                int cell = row * columns + column;
+                int color = color(counts[cell], speeds[cell], logMaxCount, speedScale);
+                int left = column * CELL_SIZE;
+                int right = Math.min(left + CELL_SIZE, width);
+                for (int y = top; y < bottom; y++) {
+                    Arrays.fill(pixels, y * width + left, y * width + right, color);
+                }
+            }
+        });
+    }
+
+    // ramp colour of the density on the black background, darker for slow particles
+    private int color(int count, double speedSum, double logMaxCount, double speedScale) {
+
+        if (count == 0) {
+            return ParticleRasterizer.BACKGROUND;
+        }
+
+        int color = ramp.at(Math.log1p(count) / logMaxCount);
+        double averageSpeed = Math.min(speedSum / count * speedScale, 1);
+        double factor = (color >>> 24) / 255.0 * (MIN_BRIGHTNESS + (1 - MIN_BRIGHTNESS) * averageSpeed);
+
+        int red = (int) (((color >> 16) & 0xFF) * factor);
+        int green = (int) (((color >> 8) & 0xFF) * factor);
+        int blue = (int) ((color & 0xFF) * factor);
+
+        return ParticleRasterizer.BACKGROUND | red << 16 | green << 8 | blue;
+    }
+
+}
@@ -0,0 +1,99 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Command line benchmark of the array kernels:
+ * Runs the force and movement kernels of a frame (gravity, an attractor, a repeller and the move) on two equal stores,
+ * one with the plain loops of ScalarKernels and one with Kernels, i.e. the Vector API if the Java 17 variant runs with
+ * --add-modules jdk.incubator.vector. The rounds alternate between both, so that both see the same machine state.
+ *
+ * Prints the mean duration per particle of both and checks that they produce the same particles.
+ *
+ * Usage: KernelBenchmark [particles] [rounds]
+ */
+public class KernelBenchmark {
+
+    private static final int WARMUP_ROUNDS = 100;
+
+    public static void main(String[] args) {
+
+        int particles;
+        int rounds;
+        try {
+            particles = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+            rounds = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid arguments: " + String.join(" ", args));
+            System.exit(1);
+            return;
+        }
+
+        FrameParameters parameters = FrameParameters.defaults();
+        Paddle attractor = new Paddle(new Vector2D(parameters.canvasWidth / 3, parameters.canvasHeight / 2), Paddle.ATTRACTING);
+        Paddle repeller = new Paddle(new Vector2D(parameters.canvasWidth * 2 / 3, parameters.canvasHeight / 2), Paddle.REPELLING);
+
+        ParticleStore scalar = createStore(particles, parameters);
+        ParticleStore kernels = createStore(particles, parameters);
+
+        long scalarNanos = 0;
+        long kernelsNanos = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + rounds; round++) {
+
+            long start = System.nanoTime();
+            ScalarKernels.addConstantForce(scalar, 0, particles, parameters.gravityX, parameters.gravityY);
+            ScalarKernels.addPaddleForce(scalar, 0, particles, attractor, parameters.attractorStrength);
+            ScalarKernels.addPaddleForce(scalar, 0, particles, repeller, parameters.repellerStrength);
+            ScalarKernels.move(scalar, 0, particles, parameters.particleMaxSpeed);
+            long scalarEnd = System.nanoTime();
+
+            Kernels.addConstantForce(kernels, 0, particles, parameters.gravityX, parameters.gravityY);
+            Kernels.addPaddleForce(kernels, 0, particles, attractor, parameters.attractorStrength);
+            Kernels.addPaddleForce(kernels, 0, particles, repeller, parameters.repellerStrength);
+            Kernels.move(kernels, 0, particles, parameters.particleMaxSpeed);
+            long kernelsEnd = System.nanoTime();
+
+            if (round >= WARMUP_ROUNDS) {
+                scalarNanos += scalarEnd - start;
+                kernelsNanos += kernelsEnd - scalarEnd;
+            }
+        }
+
+        double scalarPerParticle = (double) scalarNanos / rounds / particles;
+        double kernelsPerParticle = (double) kernelsNanos / rounds / particles;
+
+        System.out.println(String.format("%,d particles, %d rounds", particles, rounds));
+        System.out.println(String.format("%-24s %8.3f ns/particle", "scalar", scalarPerParticle));
+        System.out.println(String.format("%-24s %8.3f ns/particle", Kernels.implementation(), kernelsPerParticle));
+        System.out.println(String.format("speedup %.2f", scalarPerParticle / kernelsPerParticle));
+
+        if (!isEqual(scalar, kernels, particles)) {
+            System.out.println("FAILED: the kernels produce different particles");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Store with the given number of particles at random positions of the canvas, the same for every call
+     */
+    private static ParticleStore createStore(int particles, FrameParameters parameters) {
+
+        SplittableRandom random = new SplittableRandom(42);
+
+        ParticleStore store = new ParticleStore(particles);
+        store.reserve(particles, parameters.particleLifeSpanMax, parameters.particleMaxSpeed);
+        for (int i = 0; i < particles; i++) {
+            store.set(i, random.nextDouble() * parameters.canvasWidth, random.nextDouble() * parameters.canvasHeight,
+                    random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1);
+        }
+
+        return store;
+    }
+
+    private static boolean isEqual(ParticleStore a, ParticleStore b, int particles) {
+        return Arrays.equals(a.x, 0, particles, b.x, 0, particles)
+                && Arrays.equals(a.y, 0, particles, b.y, 0, particles)
+                && Arrays.equals(a.vx, 0, particles, b.vx, 0, particles)
+                && Arrays.equals(a.vy, 0, particles, b.vy, 0, particles);
+    }
+
+}
@@ -0,0 +1,42 @@
+
+/**
+ * Array kernels of the force and movement stages, applied to a range of particles [from, to).
+ *
+ * This is the Java 10 variant, it always uses the plain loops of ScalarKernels. The multi-release jar
+ * contains a Java 17 variant of this class (src/main/java17) which uses the Vector API instead
+ * if the jdk.incubator.vector module is available. Both produce the same results.
+ */
+final class Kernels {
+
+    private Kernels() {
+    }
+
+    /**
+     * Name of the implementation, e.g. for the overlay and benchmarks
+     */
+    static String implementation() {
+        return "scalar";
+    }
+
+    /**
+     * Add the same force to the acceleration of every particle, e.g. gravity
+     */
+    static void addConstantForce(ParticleStore particles, int from, int to, double forceX, double forceY) {
+        ScalarKernels.addConstantForce(particles, from, to, forceX, forceY);
+    }
+
+    /**
+     * Add the force of the paddle with unlimited range to the acceleration of every particle
+     */
+    static void addPaddleForce(ParticleStore particles, int from, int to, Paddle paddle, double strength) {
+        ScalarKernels.addPaddleForce(particles, from, to, paddle, strength);
+    }
+
+    /**
+     * Move every particle, see ParticleStore.move
+     */
+    static void move(ParticleStore particles, int from, int to, double maxSpeed) {
+        ScalarKernels.move(particles, from, to, maxSpeed);
+    }
+
+}
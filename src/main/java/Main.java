@@ -1,22 +1,20 @@
 
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.sql.Timestamp;
 import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
 import java.util.*;
 
-import com.opencsv.CSVReader;
-import com.opencsv.CSVWriter;
 import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.ContextMenu;
+import javafx.scene.control.Label;
 import javafx.scene.control.MenuItem;
-import javafx.scene.image.Image;
+import javafx.scene.control.Slider;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
@@ -24,7 +22,8 @@ import javafx.stage.Stage;
 
 public class Main extends Application {
 
-    private static Random random = new Random();
+    // fixed timestep of the simulation; the forces are tuned to one step per frame at 60 fps
+    private static final int SIMULATION_STEPS_PER_SECOND = 60;
 
     Canvas canvas;
     GraphicsContext graphicsContext;
@@ -32,7 +31,11 @@ public class Main extends Application {
 
     List<Attractor> allAttractors = new ArrayList<>();
     List<Repeller> allRepellers = new ArrayList<>();
-    List<Particle> allParticles = new ArrayList<>();
+
+    // physics, emission and culling; this class only renders and controls it
+    SimulationEngine engine = new SimulationEngine(Settings.get().snapshot());
+    // steps the engine independently of the render rate; the engine is only touched through it
+    SimulationThread simulation = new SimulationThread(engine, SIMULATION_STEPS_PER_SECOND);
 
     AnimationTimer animationLoop;
 
@@ -40,7 +43,16 @@ public class Main extends Application {
 
     MouseGestures mouseGestures = new MouseGestures();
 
-    private Image[] images;
+    // particle sprites, created in the background whenever the particle size changes
+    private SpriteCache sprites = new SpriteCache();
+    // particles are drawn into a frame buffer, which is uploaded into the frame image once per frame
+    private ParticleRasterizer rasterizer = new ParticleRasterizer();
+    // replaces the particles above the heatmap threshold
+    private HeatmapRenderer heatmapRenderer = new HeatmapRenderer();
+    private WritableImage frameImage;
+    // phase timings of the engine, plus rendering
+    private FrameProfiler profiler = engine.getProfiler();
+    private boolean showFrameTimings = false;
 
     private double primaryStageWidth;
     private double primaryStageHeight;
@@ -54,23 +66,11 @@ public class Main extends Application {
     private final int sampleSize = Settings.get().getSampleSize();
     private final int initializationWindow = Settings.get().getInitializationWindow();
     private final int frameSamplingWindow = Settings.get().getFrameSamplingWindow();
-    // tracks frames captured.
-    // e.g., every N frames captured => 1 element added to each list
-    private int numberOfFramesCaptured = 0;
-    // processing lists:
-    private List<Double> collisionsList = new ArrayList<>();
-    private List<Double> avgVelocitiesList = new ArrayList<>();
-    private List<Double> avgAccelerationsList = new ArrayList<>();
-    // object used for data aggregation:
-    private DataGroup dataGroup = new DataGroup();
+    // experiment in progress, null if there is none
+    private ExperimentRun experimentRun;
     // object used to run statistics on the datasets, and populate the visualizations
     private TestingUnit testingUnit = new TestingUnit();
     private BorderPane root = new BorderPane();
-    // mutex booleans used for experiments
-    private boolean firstExperimentInProgress = false;
-    private boolean secondExperimentInProgress = false;
-    private boolean thirdExperimentInProgress = false;
-    private boolean panelInitialized = false;
     // formatting object
     private DecimalFormat df = new DecimalFormat("###.##");
     // css slider track colors
@@ -120,7 +120,7 @@ public class Main extends Application {
         });
 
         // initialize content:
-        preCreateImages();
+        requestSprites();
         // add content:
         preparePaddlesAndStencils();
         // listeners for settings:
@@ -133,10 +133,16 @@ public class Main extends Application {
         startAnimation();
     }
 
+    @Override
+    public void stop() {
+        simulation.stop();
+        sprites.shutdown();
+    }
+
     public static void main(String[] args) { launch(args); }
 
-    private void preCreateImages() {
-        this.images = Utils.preCreateImages();
+    private void requestSprites() {
+        sprites.request(Settings.get().getParticleWidth(), (int) Settings.get().getParticleLifeSpanMax());
     }
 
     private void preparePaddlesAndStencils() {
@@ -158,299 +164,112 @@ public class Main extends Application {
         animationLoop = new AnimationTimer() {
 
             FpsCounter fpsCounter = new FpsCounter();
-            int initializationCounter = 0;
-            boolean experiementExecutionTriggered = false;
 
             // called every frame:
             @Override
             public void handle(long now) {
                 // update fps
                 fpsCounter.update(now);
-                // add new particles
-                for (int i = 0; i < Settings.get().getEmitterFrequency(); i++) {
-                    addParticle();
-                }
-                // apply force: gravity
-                Vector2D forceGravity = Settings.get().getForceGravity();
-                allParticles.forEach(sprite -> {
-                    sprite.applyForce(forceGravity);
-                });
-                // apply force: attractor
-                for (Attractor attractor : allAttractors) {
-                    allParticles.stream().parallel().forEach(sprite -> {
-                        Vector2D force = attractor.getForce(sprite);
-                        sprite.applyForce(force);
-                    });
-                }
-                // apply force: repeller
-                for (Repeller repeller : allRepellers) {
-                    allParticles.stream().parallel().forEach(sprite -> {
-                        Vector2D force = repeller.getForce(sprite);
-                        sprite.applyForce(force);
-                    });
+                // capture settings once for this frame; an experiment in progress sets the parameters itself
+                FrameParameters parameters = Settings.get().snapshot();
+                if (experimentRun == null) {
+                    simulation.setParameters(parameters);
                 }
-                /////////////////////////////////////////
-                // INTEGRATION FOR EXPERIMENTS
-                ///////////////////////////////////////
-                // Track all data if experiment is in progress and testing is ready
-                if ((firstExperimentInProgress || secondExperimentInProgress || thirdExperimentInProgress) && panelInitialized) {
-                    // Data collection and logging:
-                    retrieveData(detectCollisions(), reportAverageVelocity(), reportAverageAcceleration());
-                    numberOfFramesCaptured++;
-                }
-                // CONTROL EXPERIMENTS:
-                // Experiment 1
-                if (firstExperimentInProgress) {
-                    if (!panelInitialized) {
-                        Settings.get().progressLabel1.textProperty().setValue("    Initializing ....");
-                        Settings.get().percentageLabel1.textProperty().setValue("");
-                        initializePanelSettings();
-                        panelInitialized = true;
-                    }
-                    // Initialization check:
-                    if (initializationCounter == initializationWindow) {
-                        Settings.get().progressLabel1.textProperty().setValue("Progress:   ");
-                        // set color on track and zero out lists
-                        if (!experiementExecutionTriggered) { executeFirstExperiment(); experiementExecutionTriggered = true; }
-                        // update progress label
-                        updateProgressLabel();
-                        // perform automated parameter controls
-                        operatePanelSettings();
-                        // Test Completed:
-                        if (collisionsList.size() == sampleSize) {
-                            // retrieve and set new Node for the output console
-                            root.setRight(testingUnit.generateOutputConsole(collisionsList,
-                                    avgVelocitiesList, avgAccelerationsList));
-                            outputDataSet();
-                            firstExperimentInProgress = false;
-                            Settings.get().repellerStrengthSlider.setStyle(defaultTrackColor);
-                            logDataToConsole();
-                            resetPanelSettings();
-                            resetArrayLists();
-                            initializationCounter = 0;
-                            panelInitialized = false;
-                            experiementExecutionTriggered = false;
-                        }
-                    } else { initializationCounter++; }
-                }
-                // Experiment 2
-                else if (secondExperimentInProgress) {
-                    if (!panelInitialized) {
-                        Settings.get().progressLabel2.textProperty().setValue("    Initializing ....");
-                        Settings.get().percentageLabel2.textProperty().setValue("");
-                        initializePanelSettings();
-                        panelInitialized = true;
-                    }
-                    // Initialization check:
-                    if (initializationCounter == initializationWindow) {
-                        Settings.get().progressLabel2.textProperty().setValue("Progress:   ");
-                        // set color on track and zero out lists
-                        if (!experiementExecutionTriggered) { executeSecondExperiment(); experiementExecutionTriggered = true; }
-                        // update progress label
-                        updateProgressLabel();
-                        // perform automated parameter controls
-                        operatePanelSettings();
-                        // Test Completed:
-                        if (collisionsList.size() == sampleSize) {
-                            root.setRight(testingUnit.generateOutputConsole(collisionsList,
-                                    avgVelocitiesList, avgAccelerationsList));
-                            outputDataSet();
-                            secondExperimentInProgress = false;
-                            Settings.get().forceGravityXSlider.setStyle(defaultTrackColor);
-                            logDataToConsole();
-                            resetPanelSettings();
-                            resetArrayLists();
-                            initializationCounter = 0;
-                            panelInitialized = false;
-                            experiementExecutionTriggered = false;
-                        }
-                    } else { initializationCounter++; };
-                }
-                // Experiment 3
-                else if (thirdExperimentInProgress) {
-                    if (!panelInitialized) {
-                        Settings.get().progressLabel3.textProperty().setValue("    Initializing ....");
-                        Settings.get().percentageLabel3.textProperty().setValue("");
-                        initializePanelSettings();
-                        panelInitialized = true;
-                    }
-                    // Initialization check:
-                    if (initializationCounter == initializationWindow) {
-                        Settings.get().progressLabel3.textProperty().setValue("Progress:   ");
-                        // set color on track and zero out lists
-                        if (!experiementExecutionTriggered) { executeThirdExperiment(); experiementExecutionTriggered = true; }
-                        // update progress label
-                        updateProgressLabel();
-                        // perform automated parameter controls
-                        operatePanelSettings();
-                        // Test Completed:
-                        if (collisionsList.size() == sampleSize) {
-                            root.setRight(testingUnit.generateOutputConsole(collisionsList,
-                                    avgVelocitiesList, avgAccelerationsList));
-                            outputDataSet();
-                            thirdExperimentInProgress = false;
-                            Settings.get().particleMaxSpeedSlider.setStyle(defaultTrackColor);
-                            logDataToConsole();
-                            resetPanelSettings();
-                            resetArrayLists();
-                            initializationCounter = 0;
-                            panelInitialized = false;
-                            experiementExecutionTriggered = false;
-                        }
-                    } else { initializationCounter++; }
-                }
-                ////////////////////////////////////////////////////
-                // END INTEGRATION FOR EXPERIMENTS
-                ////////////////////////////////////////////////////
-
-                // move sprite: apply acceleration, calculate velocity and position
-                allParticles.stream().parallel().forEach(Sprite::move);
+                // show progress of the experiment in progress
+                updateExperimentPanel();
                 // update in fx scene
                 allAttractors.forEach(Sprite::display);
                 allRepellers.forEach(Sprite::display);
                 // draw all particles on canvas
                 // -----------------------------------------
-                // graphicsContext.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
-                graphicsContext.setFill(Color.BLACK);
-                graphicsContext.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
-                // TODOforLater: parallel?
-                double particleSizeHalf = Settings.get().getParticleWidth() / 2;
-                allParticles.stream().forEach(particle -> {
-                    Image img = images[particle.getLifeSpan()];
-                    graphicsContext.drawImage(img, particle.getPosition().x - particleSizeHalf, particle.getPosition().y - particleSizeHalf);
-
-                });
-                // life span of particle
-                allParticles.stream().parallel().forEach(Sprite::decreaseLifeSpan);
-                // remove all particles that aren't visible anymore
-                removeDeadParticles();
+                double particleSizeHalf = parameters.particleWidth / 2;
+                RenderSnapshot particles = simulation.acquireSnapshot();
+                boolean heatmap = particles.size() > Settings.get().getHeatmapThreshold();
+                long renderStart = System.nanoTime();
+                drawParticles(particles, particleSizeHalf, heatmap, parameters.particleMaxSpeed);
+                profiler.record(FrameProfiler.Phase.RENDER, renderStart);
                 // show number of particles
                 graphicsContext.setFill(Color.WHITE);
-                graphicsContext.fillText("Particles: " + allParticles.size()
+                graphicsContext.fillText("Particles: " + particles.size()
                                 + "   FPS: " + fpsCounter.getFrameRate()
+                                + "   Steps/s: " + simulation.getStepRate()
+                                + "   Skipped pairs: " + engine.getSkippedPaddlePairs()
+                                + (heatmap ? "   Heatmap" : "")
+                                + (simulation.getFailure() != null ? "\nSimulation stopped: " + simulation.getFailure() : "")
                                 + "\nStage:\t" + (int) primaryStageWidth + " w\t" + (int) primaryStageHeight + " h"
                                 + "\nCanvas:\t" + (int) canvasWidth + " w\t" + (int) canvasHeight + " h"
                                 + "\nScene:\t" + (int) sceneWidth + " w\t" + (int) sceneHeight + " h"
+                                + (showFrameTimings ? "\n" + profiler.summary() : "")
                         , 1, 10
                 );
             } // End @handle method.
         };
-        // start loop
+        // start loops
+        simulation.start();
         animationLoop.start();
     }
 
-    private void initializePanelSettings() {
-        if (firstExperimentInProgress) {
-            // adjusts: REPELLER STRENGTH: START=0, END=2000
-            // controls: attractor strength (MAX=2000)
-            double value = 0;
-            double attractorStrengthControl = 2000;
-            // SLIDERS:
-            Settings.get().repellerStrengthSlider.setValue(value);
-            Settings.get().repellerStrengthSlider.setStyle(initializationTrackColor);
-            Settings.get().attractorStrengthSlider.setValue(attractorStrengthControl);
-            // lock other sliders
-            Settings.get().emitterFrequencySlider.setValue(Settings.get().getInitialEmitterFrequencyValue());
-            Settings.get().emitterLocationYSlider.setValue(Settings.get().getInitialEmitterLocationYValue());
-            Settings.get().particleSizeSlider.setValue(Settings.get().getInitialParticleSizeValue());
-            Settings.get().particleMaxSpeedSlider.setValue(Settings.get().getInitialParticleMaxSpeedValue());
-            Settings.get().forceGravityXSlider.setValue(Settings.get().getInitialForceGravityXValue());
-            Settings.get().forceGravityYSlider.setValue(Settings.get().getInitialForceGravityYValue());
-        } else if (secondExperimentInProgress) {
-            // adjusts GRAVITY X: START=-0.5, MID=0.5, END=-0.5
-            // controls: emitter frequency (MAX=150), particle max speed (MAX=10)
-            double result = -0.5;
-            // SLIDERS:
-            Settings.get().forceGravityXSlider.setValue(result);
-            Settings.get().forceGravityXSlider.setStyle(initializationTrackColor);
-            Settings.get().emitterFrequencySlider.setValue(150);
-            Settings.get().particleMaxSpeedSlider.setValue(10);
-            // lock other sliders
-            Settings.get().emitterLocationYSlider.setValue(Settings.get().getInitialEmitterLocationYValue());
-            Settings.get().particleSizeSlider.setValue(Settings.get().getInitialParticleSizeValue());
-            Settings.get().attractorStrengthSlider.setValue(Settings.get().getInitialAttractorStrengthValue());
-            Settings.get().repellerStrengthSlider.setValue(Settings.get().getInitialRepellerStrengthValue());
-            Settings.get().forceGravityYSlider.setValue(Settings.get().getInitialForceGravityYValue());
-        } else if (thirdExperimentInProgress) {
-            // adjusts MAX PARTICLE SPEED: START=0, END=10
-            // controls: emitter frequency (VALUE=75), emitter location y (MAX=680), gravity y (MIN=-0.5), paddle strength (MAX=2000)
-            double value = 10;
-            // SLIDERS:
-            Settings.get().particleMaxSpeedSlider.setValue(value);
-            Settings.get().particleMaxSpeedSlider.setStyle(initializationTrackColor);
-            Settings.get().emitterFrequencySlider.setValue(150);
-            Settings.get().emitterLocationYSlider.setValue(680);
-            Settings.get().forceGravityYSlider.setValue(-0.5);
-            Settings.get().attractorStrengthSlider.setValue(2000);
-            Settings.get().repellerStrengthSlider.setValue(2000);
-            // lock other sliders
-            Settings.get().particleSizeSlider.setValue(Settings.get().getInitialParticleSizeValue());
-            Settings.get().forceGravityXSlider.setValue(Settings.get().getInitialForceGravityXValue());
+    // called from @handle every frame.
+    // rasterizes the particles, or their density for large numbers, and draws the result with a single upload.
+    private void drawParticles(RenderSnapshot particles, double offset, boolean heatmap, double maxSpeed) {
+        int width = (int) canvas.getWidth();
+        int height = (int) canvas.getHeight();
+        int[] pixels;
+        if (heatmap) {
+            heatmapRenderer.render(particles, width, height, maxSpeed);
+            pixels = heatmapRenderer.getPixels();
+        } else {
+            // the latest sprites, the previous ones until new ones are created
+            SpriteAtlas atlas = sprites.current();
+            if (atlas != null) {
+                rasterizer.setStamps(atlas.getStamps());
+            }
+            rasterizer.render(particles, width, height, offset);
+            pixels = rasterizer.getPixels();
         }
+        // the canvas width follows the pane, so the frame image is replaced when the size changes
+        if (frameImage == null || (int) frameImage.getWidth() != width || (int) frameImage.getHeight() != height) {
+            frameImage = new WritableImage(Math.max(1, width), Math.max(1, height));
+        }
+        frameImage.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+        graphicsContext.drawImage(frameImage, 0, 0);
     }
 
-    private void operatePanelSettings() {
-        // adjust settings specific to experiment in progress
-        double progressComplete = (double) collisionsList.size() / (double) sampleSize;
-        if (firstExperimentInProgress) {
-            // adjusts: REPELLER STRENGTH: START=0, END=2000
-            // controls: attractor strength (MAX=2000)
-            double endValue = 2000;
-            double result = (endValue * progressComplete);
-            double attractorStrengthControl = 2000;
-            // SLIDERS:
-            Settings.get().repellerStrengthSlider.setValue(result);
-            Settings.get().attractorStrengthSlider.setValue(attractorStrengthControl);
-            // lock other sliders
-            Settings.get().emitterFrequencySlider.setValue(Settings.get().getInitialEmitterFrequencyValue());
-            Settings.get().emitterLocationYSlider.setValue(Settings.get().getInitialEmitterLocationYValue());
-            Settings.get().particleSizeSlider.setValue(Settings.get().getInitialParticleSizeValue());
-            Settings.get().particleMaxSpeedSlider.setValue(Settings.get().getInitialParticleMaxSpeedValue());
-            Settings.get().forceGravityXSlider.setValue(Settings.get().getInitialForceGravityXValue());
-            Settings.get().forceGravityYSlider.setValue(Settings.get().getInitialForceGravityYValue());
-        } else if (secondExperimentInProgress) {
-            // adjusts GRAVITY X: START=-0.5, MID=0.5, END=-0.5
-            // controls: emitter frequency (MAX=150), particle max speed (MAX=10)
-            double result;
-            // logic for gravity x slider value
-            if (progressComplete <= 0.2) {
-                //result = ((double) collisionsList.size() / (double) sampleSize);
-                result = -0.5;
-            } else if (progressComplete <= 0.4) {
-                result = 0.5;
-            } else if (progressComplete <= 0.6) {
-                result = -0.5;
-            } else if (progressComplete <= 0.8) {
-                result = 0.5;
-            } else {
-                result = -0.5;
-            }
-            // SLIDERS:
-            Settings.get().forceGravityXSlider.setValue(result);
-            Settings.get().emitterFrequencySlider.setValue(150);
-            Settings.get().particleMaxSpeedSlider.setValue(10);
-            // lock other sliders
-            Settings.get().emitterLocationYSlider.setValue(Settings.get().getInitialEmitterLocationYValue());
-            Settings.get().particleSizeSlider.setValue(Settings.get().getInitialParticleSizeValue());
-            Settings.get().attractorStrengthSlider.setValue(Settings.get().getInitialAttractorStrengthValue());
-            Settings.get().repellerStrengthSlider.setValue(Settings.get().getInitialRepellerStrengthValue());
-            Settings.get().forceGravityYSlider.setValue(Settings.get().getInitialForceGravityYValue());
-        } else if (thirdExperimentInProgress) {
-            // adjusts MAX PARTICLE SPEED: START=0, END=10
-            // controls: emitter frequency (VALUE=75), emitter location y (MAX=680), gravity y (MIN=-0.5), paddle strength (MAX=2000)
-            double endValue = 10;
-            double result = endValue - (endValue * (double) collisionsList.size() / (double) sampleSize);
-            // SLIDERS:
-            Settings.get().particleMaxSpeedSlider.setValue(result);
-            Settings.get().emitterFrequencySlider.setValue(150);
-            Settings.get().emitterLocationYSlider.setValue(680);
-            Settings.get().forceGravityYSlider.setValue(-0.5);
-            Settings.get().attractorStrengthSlider.setValue(2000);
-            Settings.get().repellerStrengthSlider.setValue(2000);
-            // lock other sliders
-            Settings.get().particleSizeSlider.setValue(Settings.get().getInitialParticleSizeValue());
-            Settings.get().forceGravityXSlider.setValue(Settings.get().getInitialForceGravityXValue());
+    // called from @handle every frame.
+    // shows the state of the experiment in progress on the panel and finishes it once it is completed.
+    private void updateExperimentPanel() {
+        if (experimentRun == null) {
+            return;
+        }
+        Experiment experiment = experimentRun.getExperiment();
+        Label progressLabel = getProgressLabel(experiment);
+        Label percentageLabel = getPercentageLabel(experiment);
+        Slider adjustedSlider = getAdjustedSlider(experiment);
+        switch (experimentRun.getPhase()) {
+            case INITIALIZING:
+                progressLabel.textProperty().setValue("    Initializing ....");
+                percentageLabel.textProperty().setValue("");
+                adjustedSlider.setStyle(initializationTrackColor);
+                break;
+            case SAMPLING:
+                progressLabel.textProperty().setValue("Progress:   ");
+                adjustedSlider.setStyle(inProgressTrackColor);
+                updateProgressLabel(percentageLabel);
+                break;
+            case COMPLETED:
+                // retrieve and set new Node for the output console
+                root.setRight(testingUnit.generateOutputConsole(experimentRun.getCollisionsList(),
+                        experimentRun.getAvgVelocitiesList(), experimentRun.getAvgAccelerationsList()));
+                outputDataSet();
+                adjustedSlider.setStyle(defaultTrackColor);
+                experimentRun.logDataToConsole();
+                resetPanelSettings();
+                simulation.execute(() -> engine.setFrameListener(null));
+                experimentRun = null;
+                return;
         }
+        // show the parameters of the experiment on the sliders
+        Settings.get().showParameters(experimentRun.getParameters());
     }
 
     private void resetPanelSettings() {
@@ -463,70 +282,61 @@ public class Main extends Application {
         Settings.get().repellerStrengthSlider.setValue(Settings.get().getInitialRepellerStrengthValue());
         Settings.get().forceGravityXSlider.setValue(Settings.get().getInitialForceGravityXValue());
         Settings.get().forceGravityYSlider.setValue(Settings.get().getInitialForceGravityYValue());
-    }
-
-    private void initializeFirstExperiment() {
-        if (!secondExperimentInProgress && !thirdExperimentInProgress) {
-            // switch experiment on
-            firstExperimentInProgress = true;
+        Settings.get().particleGravitySlider.setValue(Settings.get().getInitialParticleGravityValue());
+        Settings.get().openingAngleSlider.setValue(Settings.get().getInitialOpeningAngleValue());
+        Settings.get().particleCollisionsCheckBox.setSelected(FrameParameters.DEFAULT_PARTICLE_COLLISIONS);
+        Settings.get().restitutionSlider.setValue(Settings.get().getInitialRestitutionValue());
+        Settings.get().forceFieldResolutionSlider.setValue(Settings.get().getInitialForceFieldResolutionValue());
+        Settings.get().paddleRangeSlider.setValue(Settings.get().getInitialPaddleRangeValue());
+    }
+
+    private void startExperiment(Experiment experiment) {
+        if (experimentRun == null) {
+            // switch experiment on; particle collisions aren't controlled by the experiments, they are kept as set in the panel
+            FrameParameters settings = Settings.get().snapshot();
+            FrameParameters defaults = FrameParameters.defaults()
+                    .toBuilder()
+                    .particleCollisions(settings.particleCollisions)
+                    .restitution(settings.restitution)
+                    .build();
+            ExperimentRun run = new ExperimentRun(experiment, defaults, sampleSize, initializationWindow, frameSamplingWindow);
+            experimentRun = run;
+            simulation.execute(() -> engine.setFrameListener(run));
         }
     }
 
-    private void initializeSecondExperiment() {
-        if (!firstExperimentInProgress && !thirdExperimentInProgress) {
-            // switch experiment on
-            secondExperimentInProgress = true;
+    private Label getProgressLabel(Experiment experiment) {
+        switch (experiment) {
+            case FIRST: return Settings.get().progressLabel1;
+            case SECOND: return Settings.get().progressLabel2;
+            default: return Settings.get().progressLabel3;
         }
     }
 
-    private void initializeThirdExperiment() {
-        if (!firstExperimentInProgress && !secondExperimentInProgress) {
-            // switch experiment on
-            thirdExperimentInProgress = true;
+    private Label getPercentageLabel(Experiment experiment) {
+        switch (experiment) {
+            case FIRST: return Settings.get().percentageLabel1;
+            case SECOND: return Settings.get().percentageLabel2;
+            default: return Settings.get().percentageLabel3;
         }
     }
 
-    private void executeFirstExperiment() {
-        // zero out the lists
-        resetArrayLists();
-        // change slider track color
-        Settings.get().repellerStrengthSlider.setStyle(inProgressTrackColor);
-    }
-
-    private void executeSecondExperiment() {
-        // zero out the lists
-        resetArrayLists();
-        // change slider track color
-        Settings.get().forceGravityXSlider.setStyle(inProgressTrackColor);
-    }
-
-    private void executeThirdExperiment() {
-        // zero out the lists
-        resetArrayLists();
-        // change slider track color
-        Settings.get().particleMaxSpeedSlider.setStyle(inProgressTrackColor);
+    // slider of the parameter the experiment adjusts
+    private Slider getAdjustedSlider(Experiment experiment) {
+        switch (experiment) {
+            case FIRST: return Settings.get().repellerStrengthSlider;
+            case SECOND: return Settings.get().forceGravityXSlider;
+            default: return Settings.get().particleMaxSpeedSlider;
+        }
     }
 
-    private void updateProgressLabel() {
-        // first if statement checks which experiment is in progress, if-else checks if 0 or not and formats appropriately.
-        if (firstExperimentInProgress) {
-            if (!df.format((double) collisionsList.size() / (double) sampleSize * 100).equals("0")) {
-                Settings.get().percentageLabel1.textProperty().setValue(df.format((double) collisionsList.size() / (double) sampleSize * 100) + "%");
-            } else {
-                Settings.get().percentageLabel1.textProperty().setValue("0.0%");
-            }
-        } else if (secondExperimentInProgress) {
-            if (!df.format((double) collisionsList.size() / (double) sampleSize * 100).equals("0")) {
-                Settings.get().percentageLabel2.textProperty().setValue(df.format((double) collisionsList.size() / (double) sampleSize * 100) + "%");
-            } else {
-                Settings.get().percentageLabel2.textProperty().setValue("0.0%");
-            }
-        } else if (thirdExperimentInProgress) {
-            if (!df.format((double) collisionsList.size() / (double) sampleSize * 100).equals("0")) {
-                Settings.get().percentageLabel3.textProperty().setValue(df.format((double) collisionsList.size() / (double) sampleSize * 100) + "%");
-            } else {
-                Settings.get().percentageLabel3.textProperty().setValue("0.0%");
-            }
+    private void updateProgressLabel(Label percentageLabel) {
+        // checks if 0 or not and formats appropriately.
+        double percentage = experimentRun.getProgress() * 100;
+        if (!df.format(percentage).equals("0")) {
+            percentageLabel.textProperty().setValue(df.format(percentage) + "%");
+        } else {
+            percentageLabel.textProperty().setValue("0.0%");
         }
     }
 
@@ -534,11 +344,11 @@ public class Main extends Application {
 
     private void addSettingsListeners() {
         // particle size
-        Settings.get().particleWidthProperty().addListener((observable, oldValue, newValue) -> preCreateImages());
+        Settings.get().particleWidthProperty().addListener((observable, oldValue, newValue) -> requestSprites());
         // call to execute experiment method when button clicked
-        Settings.get().experimentButton1.setOnAction(event -> initializeFirstExperiment());
-        Settings.get().experimentButton2.setOnAction(event -> initializeSecondExperiment());
-        Settings.get().experimentButton3.setOnAction(event -> initializeThirdExperiment());
+        Settings.get().experimentButton1.setOnAction(event -> startExperiment(Experiment.FIRST));
+        Settings.get().experimentButton2.setOnAction(event -> startExperiment(Experiment.SECOND));
+        Settings.get().experimentButton3.setOnAction(event -> startExperiment(Experiment.THIRD));
         // button 1
         Settings.get().stencilButton1.setOnAction(event -> {
             // switch stencil button text (ON - OFF)
@@ -592,36 +402,6 @@ public class Main extends Application {
         });
     }
 
-    private void removeDeadParticles() {
-        Iterator<Particle> iter = allParticles.iterator();
-        while (iter.hasNext()) {
-            Particle particle = iter.next();
-            if (particle.isDead()) {
-                // remove from particle list
-                iter.remove();
-            }
-        }
-    }
-
-    private void addParticle() {
-        // random position
-        double x = Settings.get().getCanvasWidth() / 2 + random.nextDouble() * Settings.get().getEmitterWidth() - Settings.get().getEmitterWidth() / 2;
-        double y = Settings.get().getEmitterLocationY();
-        // dimensions
-        double width = Settings.get().getParticleWidth();
-        double height = Settings.get().getParticleHeight();
-        // create motion data
-        Vector2D location = new Vector2D(x, y);
-        double vx = random.nextGaussian() * 0.3;
-        double vy = random.nextGaussian() * 0.3 - 1.0;
-        Vector2D velocity = new Vector2D(vx, vy);
-        Vector2D acceleration = new Vector2D(0, 0);
-        // create sprite and add to layer
-        Particle sprite = new Particle(location, velocity, acceleration, width, height);
-        // register sprite
-        allParticles.add(sprite);
-    }
-
     private void addAttractor() {
         // center node
         double x = Settings.get().getCanvasWidth() / 2;
@@ -637,9 +417,10 @@ public class Main extends Application {
         Attractor attractor = new Attractor(location, velocity, acceleration, width, height);
         // register sprite
         allAttractors.add(attractor);
+        simulation.execute(() -> engine.addAttractor(attractor.getPaddle()));
         layerPane.getChildren().add(attractor);
         // allow moving via mouse
-        mouseGestures.makeDraggable(attractor);
+        mouseGestures.makeDraggable(attractor, () -> movePaddle(attractor.getPaddle(), attractor.getPosition()));
     }
 
     private void addRepeller() {
@@ -657,14 +438,23 @@ public class Main extends Application {
         Repeller repeller = new Repeller(location, velocity, acceleration, width, height);
         // register sprite
         allRepellers.add(repeller);
+        simulation.execute(() -> engine.addRepeller(repeller.getPaddle()));
         layerPane.getChildren().add(repeller);
         // allow moving via mouse
-        mouseGestures.makeDraggable(repeller);
+        mouseGestures.makeDraggable(repeller, () -> movePaddle(repeller.getPaddle(), repeller.getPosition()));
+    }
+
+    // the node was dragged: move its paddle on the simulation thread, with a copy of the new position
+    private void movePaddle(Paddle paddle, Vector2D position) {
+        double x = position.x;
+        double y = position.y;
+        simulation.execute(() -> paddle.moveTo(x, y));
     }
 
     private void removeRepeller () {
         if (!allRepellers.isEmpty()) {
-            allRepellers.remove(allRepellers.size() - 1);
+            Repeller repeller = allRepellers.remove(allRepellers.size() - 1);
+            simulation.execute(() -> engine.removeRepeller(repeller.getPaddle()));
             // remove last element from the layer pane; will always be a repeller
             layerPane.getChildren().remove(layerPane.getChildren().size() - 1);
         }
@@ -747,6 +537,19 @@ public class Main extends Application {
         menuItem.setOnAction(e -> removeRepeller());
         contextMenu.getItems().add(menuItem);
 
+        // frame timings
+        CheckMenuItem checkMenuItem = new CheckMenuItem("Show Frame Timings");
+        checkMenuItem.setOnAction(e -> showFrameTimings = checkMenuItem.isSelected());
+        contextMenu.getItems().add(checkMenuItem);
+
+        menuItem = new MenuItem("Save Frame Timings");
+        menuItem.setOnAction(e -> outputFrameTimings());
+        contextMenu.getItems().add(menuItem);
+
+        menuItem = new MenuItem("Reset Frame Timings");
+        menuItem.setOnAction(e -> profiler.reset());
+        contextMenu.getItems().add(menuItem);
+
         // context menu listener
         node.setOnMousePressed(event -> {
             if (event.isSecondaryButtonDown()) {
@@ -784,145 +587,19 @@ public class Main extends Application {
         }
     }
 
-    // called from @handle.
-    // returns number of collisions between the attractor and all particles during a given frame.
-    private int detectCollisions() {
-        int collisions = 0;
-        for (Particle particle : allParticles) {
-            if ((int) particle.position.x == (int) allAttractors.get(0).position.x
-                    && (int) particle.position.y == (int) allAttractors.get(0).position.y) {
-                collisions++;
-            }
-        }
-
-        return collisions;
-    }
-
-    // these methods iterate through the list of particles on screen
-    // and return the average velocity and average acceleration of all particles
-    // currently colliding with the attractor in a given frame.
-    private double reportAverageVelocity() {
-        int collisions = 0;
-        double total = 0.0;
-        for (Particle particle : allParticles) {
-            if ((int) particle.position.x == (int) allAttractors.get(0).position.x
-                    && (int) particle.position.y == (int) allAttractors.get(0).position.y) {
-                collisions++;
-                total += particle.velocity.magnitude();
-            }
-        }
-        // return average vel. during frame of function call
-        if (collisions != 0) {
-            return total / (double) collisions;
-        } else {
-            return 0;
-        }
-    }
-    private double reportAverageAcceleration() {
-        int collisions = 0;
-        double total = 0.0;
-        for (Particle particle : allParticles) {
-            if ((int) particle.position.x == (int) allAttractors.get(0).position.x
-                    && (int) particle.position.y == (int) allAttractors.get(0).position.y) {
-                collisions++;
-                total += particle.normalizedAcceleration();
-            }
-        }
-        // return average accel. during frame of function call
-        if (collisions != 0) {
-            return total / (double) collisions;
-        } else {
-            return 0;
-        }
-    }
-
-    // called from @handle.
-    // aggregates all data and pushes to each list during a given frame.
-    private void retrieveData(double collisionsDetectedThisFrame, double averagedVelocityThisFrame, double averagedAccelerationThisFrame) {
-
-        dataGroup.iteration++;
-
-        dataGroup.sumOfCollisions += collisionsDetectedThisFrame;
-        dataGroup.sumOfVelocityAverages += averagedVelocityThisFrame;
-        dataGroup.sumOfAccelerationAverages += averagedAccelerationThisFrame;
-
-        if (dataGroup.iteration == frameSamplingWindow) {
-            // adds relevant data points to the list after the N-th collection
-            collisionsList.add(dataGroup.sumOfCollisions);
-            avgVelocitiesList.add(dataGroup.averagedVelocityValue());
-            avgAccelerationsList.add(dataGroup.averagedAccelerationValue());
-            // reset DataSet
-            dataGroup.iteration = 0;
-            dataGroup.sumOfCollisions = 0;
-            dataGroup.sumOfVelocityAverages = 0;
-            dataGroup.sumOfAccelerationAverages = 0;
-            // reset counter
-            numberOfFramesCaptured = 0;
+    private void outputFrameTimings() {
+        try {
+            System.out.println("Frame timings saved: " + profiler.writeToCSVFile(dataSetOutputPath));
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
         }
     }
 
-    private void logDataToConsole() {
-        System.out.println("\n"
-                + "Test Results:" + "\t" + (firstExperimentInProgress ? "Experiment 1" : secondExperimentInProgress ? "Experiment 2" : "Experiment 3" + "\n")
-                + "Collisions List:" + "\t" + collisionsList + "\n"
-                + "Avg. Velocities List:" + "\t" + avgVelocitiesList + "\n"
-                + "Avg. Accelerations List:" + "\t" + avgAccelerationsList + "\n"
-                + "Average Collisions During Exp:" + "\t" + testingUnit.statistics.calculateMean(collisionsList) + "\n"
-                + "Average Velocity During Exp:" + "\t" + testingUnit.statistics.calculateMean(avgVelocitiesList) + "\n"
-                + "Average Acceleration During Exp:" + "\t" + testingUnit.statistics.calculateMean(avgAccelerationsList) + "\n"
-        );
-    }
-
-    private void resetArrayLists() {
-        collisionsList.clear();
-        avgVelocitiesList.clear();
-        avgAccelerationsList.clear();
-    }
-
-    // Helper class for data reporting
-    private class DataGroup {
-        int iteration = 0;
-        double sumOfCollisions = 0;
-        double sumOfVelocityAverages = 0.0;
-        double sumOfAccelerationAverages = 0.0;
-        // returns mean of the averages collected / number of iterations
-        double averagedVelocityValue() { return sumOfVelocityAverages / (double) iteration; }
-        double averagedAccelerationValue() { return sumOfAccelerationAverages / (double) iteration; }
-    }
-
     private void outputDataSet() {
         try {
-            List<String[]> output = writeToCSVFile(collisionsList, avgVelocitiesList, avgAccelerationsList);
+            experimentRun.writeToCSVFile(dataSetOutputPath, "");
         } catch (Exception e) {
             System.out.println(e.getMessage());
         }
     }
-
-    private List<String[]> writeToCSVFile(List<Double> collisionsList, List<Double> avgVelocitiesList, List<Double> avgAccelerationsList) throws Exception {
-
-        List<String[]> stringArray = new ArrayList<>();
-
-        String[] dataLabelRow = { "Collisions", "Avg-Velocity", "Avg-Accel" };
-        stringArray.add(dataLabelRow);
-        for (int i = 0; i < collisionsList.size(); i++) {
-            // every iteration adds one row to the .csv
-            String[] dataValuesRow = { collisionsList.get(i).toString(), avgVelocitiesList.get(i).toString(), avgAccelerationsList.get(i).toString() };
-            stringArray.add(dataValuesRow);
-        }
-
-        final SimpleDateFormat sdf = new SimpleDateFormat("MM-dd-yyyy @ HH.mm.ss");
-        Timestamp timestamp = new Timestamp(System.currentTimeMillis());
-        String filePath = dataSetOutputPath
-                + (firstExperimentInProgress ? "Experiment 1 (" : secondExperimentInProgress ? "Experiment 2 (" : "Experiment 3 (")
-                + sdf.format(timestamp)
-                + ").csv";
-        filePath = filePath.replace("\\", "/");
-
-        CSVWriter writer = new CSVWriter(new FileWriter(filePath));
-        writer.writeAll(stringArray);
-        writer.close();
-
-        CSVReader reader = new CSVReader(new FileReader(filePath));
-        return reader.readAll();
-    }
 }
@@ -9,10 +9,16 @@ public class MouseGestures {
 
     private final DragContext dragContext = new DragContext();
 
-    void makeDraggable(final Sprite sprite) {
+    /**
+     * @param onMoved called on the FX thread after every move of the sprite, e.g. to move its paddle as well
+     */
+    void makeDraggable(final Sprite sprite, Runnable onMoved) {
 
         sprite.setOnMousePressed(onMousePressedEventHandler);
-        sprite.setOnMouseDragged(onMouseDraggedEventHandler);
+        sprite.setOnMouseDragged(event -> {
+            onMouseDraggedEventHandler.handle(event);
+            onMoved.run();
+        });
         sprite.setOnMouseReleased(onMouseReleasedEventHandler);
     }
 
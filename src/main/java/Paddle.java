@@ -0,0 +1,74 @@
+
+/**
+ * Force source of an attractor or repeller without any view:
+ * Has its own copy of the position, which belongs to the simulation. When a node is dragged, its paddle
+ * is moved by a command on the simulation thread, so the forces never see a half-updated position.
+ */
+public class Paddle {
+
+    public static final double ATTRACTING = 1.0;
+    public static final double REPELLING = -1.0;
+
+    final Vector2D position;
+    final double factor; // +1 attracts, -1 repels
+
+    public Paddle(Vector2D position, double factor) {
+        this.position = new Vector2D(position.x, position.y);
+        this.factor = factor;
+    }
+
+    public Vector2D getPosition() {
+        return position;
+    }
+
+    /**
+     * Move the paddle; only on the thread that steps the engine, or while it doesn't step
+     */
+    public void moveTo(double x, double y) {
+        position.set(x, y);
+    }
+
+    public boolean isAttracting() {
+        return factor > 0;
+    }
+
+    public boolean isInRange(double x, double y, double range) {
+        double dx = position.x - x;
+        double dy = position.y - y;
+        return dx * dx + dy * dy <= range * range;
+    }
+
+    /**
+     * Force at the given location for the given strength, added to the force vector. Doesn't allocate any objects.
+     */
+    public void addForce(double x, double y, double strength, Vector2D force) {
+        addForce(x, y, strength, 0, force);
+    }
+
+    /**
+     * Force with a limited range: locations further away than the range don't get any force. A range of 0 is unlimited.
+     */
+    public void addForce(double x, double y, double strength, double range, Vector2D force) {
+
+        if (range > 0 && !isInRange(x, y, range)) {
+            return;
+        }
+
+        // calculate direction of force
+        double directionX = position.x - x;
+        double directionY = position.y - y;
+        // get distance (constrain distance)
+        double distance = Math.sqrt(directionX * directionX + directionY * directionY); // distance between objects
+        // normalize direction (distance doesn't matter here, we just want this vector for direction)
+        if (distance != 0 && distance != 1) {
+            directionX /= distance;
+            directionY /= distance;
+        }
+        distance = Math.max(5, Math.min(distance, 1000)); // keep distance within a reasonable range
+        // calculate magnitude
+        double magnitude = factor * strength / (distance * distance); // force is inversely proportional to distance
+        // make a vector out of direction and magnitude
+        force.add(directionX * magnitude, directionY * magnitude);
+    }
+
+}
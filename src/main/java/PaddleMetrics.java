@@ -0,0 +1,106 @@
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Collision metrics of all paddles in a frame:
+ * Number of particles hitting each paddle and the sums of their velocity and acceleration.
+ * Paddles are numbered attractors first, then repellers, in the order of the engine.
+ */
+public class PaddleMetrics {
+
+    private final int attractorCount;
+
+    final int[] collisions;
+    final double[] velocitySums;
+    final double[] accelerationSums;
+
+    PaddleMetrics(int attractorCount, int paddleCount) {
+
+        this.attractorCount = attractorCount;
+
+        collisions = new int[paddleCount];
+        velocitySums = new double[paddleCount];
+        accelerationSums = new double[paddleCount];
+    }
+
+    /**
+     * Collect count, velocity and acceleration of the hits in one pass over the particles around the paddles.
+     * Every row of cells around a paddle is a parallel task with its own accumulators, they are merged in task order
+     * so that the sums don't depend on the scheduling.
+     * @param hitRadius see {@link SpatialGrid#forEachHit}
+     */
+    public static PaddleMetrics measure(SpatialGrid grid, ParticleStore particles, List<Paddle> attractors, List<Paddle> repellers, double hitRadius) {
+
+        List<Paddle> paddles = new ArrayList<>(attractors);
+        paddles.addAll(repellers);
+
+        PaddleMetrics metrics = new PaddleMetrics(attractors.size(), paddles.size());
+
+        // tasks: paddle and row
+        List<int[]> tasks = new ArrayList<>();
+        for (int paddle = 0; paddle < paddles.size(); paddle++) {
+            double y = paddles.get(paddle).position.y;
+            int lastRow = grid.lastHitRow(y, hitRadius);
+            for (int row = grid.firstHitRow(y, hitRadius); row <= lastRow; row++) {
+                tasks.add(new int[] { paddle, row });
+            }
+        }
+
+        // striped accumulators, one slot per task
+        int[] stripeCollisions = new int[tasks.size()];
+        double[] stripeVelocities = new double[tasks.size()];
+        double[] stripeAccelerations = new double[tasks.size()];
+
+        IntStream.range(0, tasks.size()).parallel().forEach(task -> {
+            Paddle paddle = paddles.get(tasks.get(task)[0]);
+            int row = tasks.get(task)[1];
+            grid.forEachHitInRow(particles, paddle.position.x, paddle.position.y, hitRadius, row, index -> {
+                stripeCollisions[task]++;
+                stripeVelocities[task] += particles.velocityMagnitude(index);
+                stripeAccelerations[task] += particles.normalizedAcceleration(index);
+            });
+        });
+
+        for (int task = 0; task < tasks.size(); task++) {
+            int paddle = tasks.get(task)[0];
+            metrics.collisions[paddle] += stripeCollisions[task];
+            metrics.velocitySums[paddle] += stripeVelocities[task];
+            metrics.accelerationSums[paddle] += stripeAccelerations[task];
+        }
+
+        return metrics;
+    }
+
+    public int paddleCount() {
+        return collisions.length;
+    }
+
+    public int getAttractorCount() {
+        return attractorCount;
+    }
+
+    // number of the i-th attractor or repeller
+    public int attractor(int i) {
+        return i;
+    }
+
+    public int repeller(int i) {
+        return attractorCount + i;
+    }
+
+    public int getCollisions(int paddle) {
+        return collisions[paddle];
+    }
+
+    // average velocity and average acceleration of all particles colliding with the paddle, 0 without collisions
+    public double getAverageVelocity(int paddle) {
+        return collisions[paddle] != 0 ? velocitySums[paddle] / collisions[paddle] : 0;
+    }
+
+    public double getAverageAcceleration(int paddle) {
+        return collisions[paddle] != 0 ? accelerationSums[paddle] / collisions[paddle] : 0;
+    }
+
+}
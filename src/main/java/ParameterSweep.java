@@ -0,0 +1,309 @@
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.opencsv.CSVWriter;
+
+/**
+ * Parameter sweep:
+ * Runs one independent simulation per point of a grid of settings values on a bounded pool of worker threads
+ * and aggregates the statistics of all points into one table.
+ * Grid point n runs with seed + n, so the results don't depend on the number of threads.
+ *
+ * Usage: ParameterSweep [--repeller-strength v1,v2,..] [--gravity-x ..] [--gravity-y ..] [--max-speed ..] [--particle-gravity ..]
+ *                       [--collisions false,true] [--restitution ..]
+ *                       [--layout 1|2|3] [--hit-radius r] [--threads n] [--seed s] [--output directory]
+ */
+public class ParameterSweep {
+
+    // grid axes, each one defaults to the value of the settings panel
+    private double[] repellerStrengths = { FrameParameters.DEFAULT_REPELLER_STRENGTH };
+    private double[] gravityXValues = { FrameParameters.DEFAULT_GRAVITY_X };
+    private double[] gravityYValues = { FrameParameters.DEFAULT_GRAVITY_Y };
+    private double[] maxSpeeds = { FrameParameters.DEFAULT_PARTICLE_MAX_SPEED };
+    private double[] particleGravities = { FrameParameters.DEFAULT_PARTICLE_GRAVITY };
+    private boolean[] collisionsValues = { FrameParameters.DEFAULT_PARTICLE_COLLISIONS };
+    private double[] restitutions = { FrameParameters.DEFAULT_RESTITUTION };
+
+    // paddles are placed like the stencil markers of this experiment
+    private Experiment layout = Experiment.FIRST;
+
+    // 0 compares pixels like the experiments
+    private double hitRadius = 0;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private long seed = RandomStreams.randomSeed();
+
+    /**
+     * Result of a single grid point
+     */
+    public static class Result {
+
+        final FrameParameters parameters;
+        final long seed;
+        final ExperimentRun run;
+
+        Result(FrameParameters parameters, long seed, ExperimentRun run) {
+            this.parameters = parameters;
+            this.seed = seed;
+            this.run = run;
+        }
+    }
+
+    public static void main(String[] args) {
+
+        ParameterSweep sweep = new ParameterSweep();
+        String outputPath = ".";
+
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--repeller-strength": sweep.setRepellerStrengths(parseValues(value)); break;
+                    case "--gravity-x": sweep.setGravityXValues(parseValues(value)); break;
+                    case "--gravity-y": sweep.setGravityYValues(parseValues(value)); break;
+                    case "--max-speed": sweep.setMaxSpeeds(parseValues(value)); break;
+                    case "--particle-gravity": sweep.setParticleGravities(parseValues(value)); break;
+                    case "--collisions": sweep.setCollisionsValues(parseFlags(value)); break;
+                    case "--restitution": sweep.setRestitutions(parseValues(value)); break;
+                    case "--layout": sweep.setLayout(Experiment.values()[Integer.parseInt(value) - 1]); break;
+                    case "--hit-radius": sweep.setHitRadius(Double.parseDouble(value)); break;
+                    case "--threads": sweep.setThreads(Integer.parseInt(value)); break;
+                    case "--seed": sweep.setSeed(Long.parseLong(value)); break;
+                    case "--output": outputPath = value; break;
+                    default: throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Invalid arguments: " + String.join(" ", args));
+            System.out.println("Usage: ParameterSweep [--repeller-strength v1,v2,..] [--gravity-x ..] [--gravity-y ..] [--max-speed ..] [--particle-gravity ..]"
+                    + " [--collisions false,true] [--restitution ..] [--layout 1|2|3] [--hit-radius r] [--threads n] [--seed s] [--output directory]");
+            System.exit(1);
+            return;
+        }
+
+        if (!outputPath.endsWith("/") && !outputPath.endsWith("\\")) {
+            outputPath += File.separator;
+        }
+
+        long startTime = System.nanoTime();
+
+        try {
+            List<Result> results = sweep.run();
+            // timestamped like the experiment files, so a sweep doesn't overwrite an earlier one
+            final SimpleDateFormat sdf = new SimpleDateFormat("MM-dd-yyyy @ HH.mm.ss");
+            Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+            String filePath = writeToCSVFile(results, outputPath + "Sweep of " + results.size() + " points (" + sdf.format(timestamp) + ").csv");
+            long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+            System.out.println("Sweep of " + results.size() + " points completed in " + elapsedMillis + " ms: " + filePath);
+        } catch (Exception e) {
+            // e.g. a failed grid point, scripts can tell by the exit code
+            System.out.println("Sweep failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static double[] parseValues(String values) {
+        String[] tokens = values.split(",");
+        double[] result = new double[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            result[i] = Double.parseDouble(tokens[i].trim());
+        }
+        return result;
+    }
+
+    private static boolean[] parseFlags(String values) {
+        String[] tokens = values.split(",");
+        boolean[] result = new boolean[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            String token = tokens[i].trim();
+            if (!token.equals("true") && !token.equals("false")) {
+                throw new IllegalArgumentException(token);
+            }
+            result[i] = Boolean.parseBoolean(token);
+        }
+        return result;
+    }
+
+    /**
+     * All combinations of the axis values
+     */
+    public List<FrameParameters> createGrid() {
+
+        List<FrameParameters> grid = new ArrayList<>();
+
+        FrameParameters defaults = FrameParameters.defaults();
+
+        for (double repellerStrength : repellerStrengths) {
+            for (double gravityX : gravityXValues) {
+                for (double gravityY : gravityYValues) {
+                    for (double maxSpeed : maxSpeeds) {
+                        for (double particleGravity : particleGravities) {
+                            for (boolean collisions : collisionsValues) {
+                                for (double restitution : restitutions) {
+                                    grid.add(defaults
+                                            .toBuilder()
+                                            .repellerStrength(repellerStrength)
+                                            .gravityX(gravityX)
+                                            .gravityY(gravityY)
+                                            .particleMaxSpeed(maxSpeed)
+                                            .particleGravity(particleGravity)
+                                            .particleCollisions(collisions)
+                                            .restitution(restitution)
+                                            .build());
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return grid;
+    }
+
+    /**
+     * Simulate all grid points concurrently, every point on its own engine
+     * @return results in grid order
+     */
+    public List<Result> run() throws InterruptedException, ExecutionException {
+
+        List<FrameParameters> grid = createGrid();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (int i = 0; i < grid.size(); i++) {
+                FrameParameters parameters = grid.get(i);
+                long pointSeed = seed + i;
+                futures.add(executor.submit(() -> runPoint(parameters, pointSeed)));
+            }
+
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result runPoint(FrameParameters parameters, long seed) {
+
+        SimulationEngine engine = new SimulationEngine(parameters, seed);
+        layout.addPaddles(engine);
+
+        ExperimentRun run = new ExperimentRun("Sweep", parameters,
+                ExperimentRun.DEFAULT_SAMPLE_SIZE, ExperimentRun.DEFAULT_INITIALIZATION_WINDOW, ExperimentRun.DEFAULT_FRAME_SAMPLING_WINDOW);
+        run.setHitRadius(hitRadius);
+        run.runToCompletion(engine);
+
+        return new Result(parameters, seed, run);
+    }
+
+    /**
+     * One row per grid point: the swept values followed by the statistics of the collected samples
+     * @return path of the written file
+     */
+    public static String writeToCSVFile(List<Result> results, String filePath) throws IOException {
+
+        Statistics statistics = new Statistics();
+
+        List<String[]> stringArray = new ArrayList<>();
+
+        String[] dataLabelRow = { "Seed", "Repeller-Strength", "Gravity-X", "Gravity-Y", "Max-Speed", "Particle-Gravity", "Particle-Collisions-On", "Restitution",
+                "Collisions-Mean", "Collisions-SD", "Avg-Velocity-Mean", "Avg-Velocity-SD", "Avg-Accel-Mean", "Avg-Accel-SD",
+                "Particle-Collisions-Mean", "Particle-Collisions-SD" };
+        stringArray.add(dataLabelRow);
+
+        for (Result result : results) {
+            FrameParameters parameters = result.parameters;
+            ExperimentRun run = result.run;
+            String[] dataValuesRow = {
+                    String.valueOf(result.seed),
+                    String.valueOf(parameters.repellerStrength),
+                    String.valueOf(parameters.gravityX),
+                    String.valueOf(parameters.gravityY),
+                    String.valueOf(parameters.particleMaxSpeed),
+                    String.valueOf(parameters.particleGravity),
+                    String.valueOf(parameters.particleCollisions),
+                    String.valueOf(parameters.restitution),
+                    String.valueOf(statistics.calculateMean(run.getCollisionsList())),
+                    String.valueOf(statistics.calculateStandardDeviation(run.getCollisionsList())),
+                    String.valueOf(statistics.calculateMean(run.getAvgVelocitiesList())),
+                    String.valueOf(statistics.calculateStandardDeviation(run.getAvgVelocitiesList())),
+                    String.valueOf(statistics.calculateMean(run.getAvgAccelerationsList())),
+                    String.valueOf(statistics.calculateStandardDeviation(run.getAvgAccelerationsList())),
+                    String.valueOf(statistics.calculateMean(run.getParticleCollisionsList())),
+                    String.valueOf(statistics.calculateStandardDeviation(run.getParticleCollisionsList()))
+            };
+            stringArray.add(dataValuesRow);
+        }
+
+        filePath = filePath.replace("\\", "/");
+
+        CSVWriter writer = new CSVWriter(new FileWriter(filePath));
+        writer.writeAll(stringArray);
+        writer.close();
+
+        return filePath;
+    }
+
+    public void setRepellerStrengths(double... repellerStrengths) {
+        this.repellerStrengths = repellerStrengths;
+    }
+
+    public void setGravityXValues(double... gravityXValues) {
+        this.gravityXValues = gravityXValues;
+    }
+
+    public void setGravityYValues(double... gravityYValues) {
+        this.gravityYValues = gravityYValues;
+    }
+
+    public void setMaxSpeeds(double... maxSpeeds) {
+        this.maxSpeeds = maxSpeeds;
+    }
+
+    public void setParticleGravities(double... particleGravities) {
+        this.particleGravities = particleGravities;
+    }
+
+    public void setCollisionsValues(boolean... collisionsValues) {
+        this.collisionsValues = collisionsValues;
+    }
+
+    public void setRestitutions(double... restitutions) {
+        this.restitutions = restitutions;
+    }
+
+    public void setLayout(Experiment layout) {
+        this.layout = layout;
+    }
+
+    public void setHitRadius(double hitRadius) {
+        this.hitRadius = hitRadius;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+}
@@ -0,0 +1,233 @@
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Software renderer of the particles:
+ * Blends a stamp per particle into an ARGB frame buffer, which is uploaded to the screen once per frame,
+ * instead of drawing an image per particle on the canvas. Doesn't depend on JavaFX.
+ *
+ * The stamps are the particle sprites of a SpriteAtlas, one per lifespan.
+ *
+ * The frame buffer is split into horizontal bands which are rendered in parallel. Every band draws the particles
+ * that overlap it in the order of the snapshot, so the result is the same as drawing all particles one after another.
+ * Sorting the particles into the bands runs in parallel as well.
+ */
+public class ParticleRasterizer {
+
+    // opaque background
+    static final int BACKGROUND = 0xFF000000;
+    // rows of pixels per band
+    static final int BAND_HEIGHT = 32;
+    // particles per task when the particles are binned
+    static final int CHUNK_SIZE = 4096;
+
+    /**
+     * Image of a particle: premultiplied ARGB pixels, row by row, starting at the offset
+     */
+    public static class Stamp {
+
+        final int width;
+        final int height;
+        final int[] pixels;
+        final int offset;
+
+        public Stamp(int width, int height, int[] pixels) {
+            this(width, height, pixels, 0);
+        }
+
+        public Stamp(int width, int height, int[] pixels, int offset) {
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+            this.offset = offset;
+        }
+    }
+
+    // stamp per lifespan
+    private Stamp[] stamps = new Stamp[0];
+
+    // frame buffer, always opaque
+    private int width = 0;
+    private int height = 0;
+    private int[] pixels = new int[0];
+
+    // stamp position and stamp of every particle
+    private int[] stampLeft = new int[0];
+    private int[] stampTop = new int[0];
+    private int[] stampIndex = new int[0];
+    // particles overlapping band b are bandParticles[bandStart[b]] to bandParticles[bandStart[b + 1] - 1], in snapshot order
+    private int[] bandStart = new int[1];
+    private int[] bandParticles = new int[0];
+    // per chunk and band: overlapping particles, then the position of the chunk's first particle within the band
+    private int[] chunkCounts = new int[0];
+
+    public void setStamps(Stamp[] stamps) {
+        this.stamps = stamps;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Frame buffer of the last render call, premultiplied ARGB row by row
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Draw the particles of the snapshot on the background, in the order of the snapshot
+     * @param offset distance of the stamp's upper left corner to the particle position in both directions
+     */
+    public void render(RenderSnapshot particles, int width, int height, double offset) {
+
+        if (pixels.length != width * height) {
+            pixels = new int[width * height];
+        }
+        this.width = width;
+        this.height = height;
+
+        int bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+        // without stamps only the background is drawn
+        binParticles(particles, stamps.length == 0 ? 0 : particles.size(), bands, offset);
+
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            int bandTop = band * BAND_HEIGHT;
+            int bandBottom = Math.min(bandTop + BAND_HEIGHT, height);
+            Arrays.fill(pixels, bandTop * width, bandBottom * width, BACKGROUND);
+            for (int k = bandStart[band]; k < bandStart[band + 1]; k++) {
+                int i = bandParticles[k];
+                blend(stamps[stampIndex[i]], stampLeft[i], stampTop[i], bandTop, bandBottom);
+            }
+        });
+    }
+
+    /**
+     * Stamp position of every particle and the particles overlapping every band, a particle can overlap several bands.
+     * Runs in parallel chunks of particles like the sort of SpatialGrid: every chunk counts its overlaps per band,
+     * then places its particles behind the ones of the previous chunks.
+     */
+    private void binParticles(RenderSnapshot particles, int count, int bands, double offset) {
+
+        if (stampLeft.length < count) {
+            int capacity = count + (count >> 2);
+            stampLeft = new int[capacity];
+            stampTop = new int[capacity];
+            stampIndex = new int[capacity];
+        }
+        if (bandStart.length < bands + 1) {
+            bandStart = new int[bands + 1];
+        }
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunkCounts.length < chunks * bands) {
+            chunkCounts = new int[chunks * bands];
+        }
+        int[] chunkCounts = this.chunkCounts;
+
+        // stamp and position of every particle, counted per chunk for the bands it overlaps
+        tasks(chunks).forEach(chunk -> {
+            int row = chunk * bands;
+            Arrays.fill(chunkCounts, row, row + bands, 0);
+            int to = Math.min(count, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < to; i++) {
+                stampIndex[i] = Math.min(particles.getLifeSpan(i), stamps.length - 1);
+                stampLeft[i] = (int) Math.floor(particles.getX(i) - offset + 0.5);
+                stampTop[i] = (int) Math.floor(particles.getY(i) - offset + 0.5);
+                int lastBand = lastBand(i, bands);
+                for (int band = firstBand(i); band <= lastBand; band++) {
+                    chunkCounts[row + band]++;
+                }
+            }
+        });
+
+        // per band: start, and the position of every chunk within the band
+        bandStart[0] = 0;
+        for (int band = 0; band < bands; band++) {
+            int total = 0;
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int chunkCount = chunkCounts[chunk * bands + band];
+                chunkCounts[chunk * bands + band] = total;
+                total += chunkCount;
+            }
+            bandStart[band + 1] = bandStart[band] + total;
+        }
+
+        int overlaps = bandStart[bands];
+        if (bandParticles.length < overlaps) {
+            bandParticles = new int[overlaps + (overlaps >> 2)];
+        }
+        int[] bandParticles = this.bandParticles;
+
+        // place the particles of every chunk in order, the chunk's position within the band is its cursor
+        tasks(chunks).forEach(chunk -> {
+            int row = chunk * bands;
+            int to = Math.min(count, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < to; i++) {
+                int lastBand = lastBand(i, bands);
+                for (int band = firstBand(i); band <= lastBand; band++) {
+                    bandParticles[bandStart[band] + chunkCounts[row + band]++] = i;
+                }
+            }
+        });
+    }
+
+    // a single chunk is binned on the calling thread
+    private static IntStream tasks(int count) {
+        IntStream tasks = IntStream.range(0, count);
+        return count > 1 ? tasks.parallel() : tasks;
+    }
+
+    private int firstBand(int particle) {
+        return Math.max(0, Math.floorDiv(stampTop[particle], BAND_HEIGHT));
+    }
+
+    private int lastBand(int particle, int bands) {
+        return Math.min(bands - 1, Math.floorDiv(stampTop[particle] + stamps[stampIndex[particle]].height - 1, BAND_HEIGHT));
+    }
+
+    /**
+     * Source-over blending of the stamp at the given position, clipped to the rows [bandTop, bandBottom) of the frame buffer
+     */
+    private void blend(Stamp stamp, int left, int top, int bandTop, int bandBottom) {
+
+        int fromX = Math.max(0, -left);
+        int toX = Math.min(stamp.width, width - left);
+        int fromY = Math.max(0, bandTop - top);
+        int toY = Math.min(stamp.height, bandBottom - top);
+
+        for (int sy = fromY; sy < toY; sy++) {
+            int source = stamp.offset + sy * stamp.width;
+            int target = (top + sy) * width + left;
+            for (int sx = fromX; sx < toX; sx++) {
+                int color = stamp.pixels[source + sx];
+                int alpha = color >>> 24;
+                if (alpha == 0) {
+                    continue;
+                }
+                if (alpha == 255) {
+                    pixels[target + sx] = color;
+                } else {
+                    pixels[target + sx] = over(color, alpha, pixels[target + sx]);
+                }
+            }
+        }
+    }
+
+    // premultiplied source over an opaque destination: source + destination * (1 - alpha)
+    private static int over(int color, int alpha, int destination) {
+
+        int remaining = 255 - alpha;
+        int red = ((color >> 16) & 0xFF) + (((destination >> 16) & 0xFF) * remaining + 127) / 255;
+        int green = ((color >> 8) & 0xFF) + (((destination >> 8) & 0xFF) * remaining + 127) / 255;
+        int blue = (color & 0xFF) + ((destination & 0xFF) * remaining + 127) / 255;
+
+        return BACKGROUND | Math.min(red, 255) << 16 | Math.min(green, 255) << 8 | Math.min(blue, 255);
+    }
+
+}
@@ -0,0 +1,379 @@
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Particle storage:
+ * Contains the position, velocity and acceleration of all particles in primitive arrays (structure of arrays).
+ * A particle is just an index into these arrays, it isn't a node and doesn't own any objects.
+ *
+ * The particles occupy the index range [first(), end()) and are ordered by birth. Particles that are born
+ * in the same frame form a cohort and share their lifespan and max speed, so these are stored per cohort and not per particle.
+ * Since the oldest cohort always dies first, expiry just advances the start of the range; the range is moved
+ * back to the start of the arrays when new particles don't fit at its end anymore.
+ */
+public class ParticleStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int INITIAL_COHORT_CAPACITY = 64;
+    // number of particles processed by a single task of the parallel kernels
+    static final int CHUNK_SIZE = 4096;
+
+    // position
+    double[] x;
+    double[] y;
+    // velocity
+    double[] vx;
+    double[] vy;
+    // acceleration
+    double[] ax;
+    double[] ay;
+
+    // range of living particles
+    private int first = 0;
+    private int end = 0;
+
+    // ring buffer of cohorts, oldest first: end index of the cohort's particles, age at which it dies and max speed at birth
+    private int[] cohortEnd = new int[INITIAL_COHORT_CAPACITY];
+    private double[] cohortDeath = new double[INITIAL_COHORT_CAPACITY];
+    private double[] cohortMaxSpeed = new double[INITIAL_COHORT_CAPACITY];
+    private int cohortHead = 0;
+    private int cohortCount = 0;
+
+    // number of age() calls, i. e. the age of a particle is the difference to the value at its birth
+    private long age = 0;
+
+    public ParticleStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ParticleStore(int capacity) {
+
+        x = new double[capacity];
+        y = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        ax = new double[capacity];
+        ay = new double[capacity];
+    }
+
+    public int size() {
+        return end - first;
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * Index of the oldest particle
+     */
+    public int first() {
+        return first;
+    }
+
+    /**
+     * Index after the youngest particle
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * Make room so that the given number of particles can be appended at the end of the range.
+     * The particles are moved to the start of the arrays, which are replaced by larger ones if they would be more than half full.
+     */
+    private void ensureRoomAtEnd(int count) {
+
+        if (end + count <= x.length) {
+            return;
+        }
+
+        int size = size();
+        int required = size + count;
+
+        // keep at least half of the arrays free, so that moving the particles is rare compared to the number of births
+        if (2 * required > x.length) {
+            int newCapacity = Math.max(2 * required, x.length + (x.length >> 1));
+            x = moved(x, newCapacity, size);
+            y = moved(y, newCapacity, size);
+            vx = moved(vx, newCapacity, size);
+            vy = moved(vy, newCapacity, size);
+            ax = moved(ax, newCapacity, size);
+            ay = moved(ay, newCapacity, size);
+        } else {
+            System.arraycopy(x, first, x, 0, size);
+            System.arraycopy(y, first, y, 0, size);
+            System.arraycopy(vx, first, vx, 0, size);
+            System.arraycopy(vy, first, vy, 0, size);
+            System.arraycopy(ax, first, ax, 0, size);
+            System.arraycopy(ay, first, ay, 0, size);
+        }
+
+        for (int c = 0; c < cohortCount; c++) {
+            cohortEnd[cohortSlot(c)] -= first;
+        }
+        first = 0;
+        end = size;
+    }
+
+    private double[] moved(double[] values, int capacity, int size) {
+
+        double[] result = new double[capacity];
+        System.arraycopy(values, first, result, 0, size);
+
+        return result;
+    }
+
+    /**
+     * Append the given number of particles at once, their values have to be set afterwards.
+     * The particles die after the given number of age() calls, but never before a particle that was added earlier.
+     * @param maxSpeed speed limit of the new particles for their whole life
+     * @return index of the first new particle
+     */
+    public int reserve(int count, double lifeSpan, double maxSpeed) {
+
+        ensureRoomAtEnd(count);
+
+        int index = end;
+        end += count;
+
+        // keep the cohorts ordered by death, so that only the oldest cohort has to be checked for expiry
+        double death = age + lifeSpan;
+        if (cohortCount > 0) {
+            int last = cohortSlot(cohortCount - 1);
+            death = Math.max(death, cohortDeath[last]);
+            if (cohortDeath[last] == death && cohortMaxSpeed[last] == maxSpeed) {
+                // same cohort, e. g. particles added in the same frame
+                cohortEnd[last] = end;
+                return index;
+            }
+        }
+
+        if (cohortCount == cohortEnd.length) {
+            growCohorts();
+        }
+        int slot = cohortSlot(cohortCount++);
+        cohortEnd[slot] = end;
+        cohortDeath[slot] = death;
+        cohortMaxSpeed[slot] = maxSpeed;
+
+        return index;
+    }
+
+    private void growCohorts() {
+
+        int capacity = cohortEnd.length * 2;
+        int[] ends = new int[capacity];
+        double[] deaths = new double[capacity];
+        double[] maxSpeeds = new double[capacity];
+
+        for (int c = 0; c < cohortCount; c++) {
+            ends[c] = cohortEnd[cohortSlot(c)];
+            deaths[c] = cohortDeath[cohortSlot(c)];
+            maxSpeeds[c] = cohortMaxSpeed[cohortSlot(c)];
+        }
+
+        cohortEnd = ends;
+        cohortDeath = deaths;
+        cohortMaxSpeed = maxSpeeds;
+        cohortHead = 0;
+    }
+
+    // position of the n-th oldest cohort in the ring buffer
+    private int cohortSlot(int n) {
+        return (cohortHead + n) % cohortEnd.length;
+    }
+
+    /**
+     * Set all values of a particle, with zero acceleration
+     */
+    public void set(int index, double x, double y, double vx, double vy) {
+
+        this.x[index] = x;
+        this.y[index] = y;
+        this.vx[index] = vx;
+        this.vy[index] = vy;
+        this.ax[index] = 0;
+        this.ay[index] = 0;
+    }
+
+    /**
+     * Decrease the lifespan of all particles by one and remove the cohorts whose lifespan is over.
+     * Doesn't touch the particles themselves.
+     */
+    public void age() {
+
+        age++;
+
+        while (cohortCount > 0 && cohortDeath[cohortHead] <= age) {
+            first = cohortEnd[cohortHead];
+            cohortHead = (cohortHead + 1) % cohortEnd.length;
+            cohortCount--;
+        }
+
+        if (cohortCount == 0) {
+            first = 0;
+            end = 0;
+        }
+    }
+
+    public void clear() {
+
+        first = 0;
+        end = 0;
+        cohortHead = 0;
+        cohortCount = 0;
+    }
+
+    /**
+     * Work on a contiguous range of particles [from, to)
+     */
+    interface ChunkTask {
+        void run(int chunk, int from, int to);
+    }
+
+    /**
+     * Work on a contiguous range of particles [from, to) of the same cohort
+     */
+    interface CohortTask {
+        void run(int from, int to, double maxSpeed);
+    }
+
+    /**
+     * Split the given range of living particles at the cohort boundaries, the parts are processed in order
+     */
+    public void forEachCohortRange(int from, int to, CohortTask task) {
+
+        for (int c = cohortOf(from); from < to; c++) {
+            int slot = cohortSlot(c);
+            int rangeEnd = Math.min(to, cohortEnd[slot]);
+            task.run(from, rangeEnd, cohortMaxSpeed[slot]);
+            from = rangeEnd;
+        }
+    }
+
+    public int chunkCount() {
+        return (size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    /**
+     * Split the particles into chunks and process the chunks in parallel
+     */
+    public void forEachChunk(ChunkTask task) {
+
+        int first = this.first;
+        int end = this.end;
+
+        IntStream.range(0, chunkCount()).parallel().forEach(chunk -> {
+            int from = first + chunk * CHUNK_SIZE;
+            int to = Math.min(from + CHUNK_SIZE, end);
+            task.run(chunk, from, to);
+        });
+    }
+
+    /**
+     * Write the remaining lifespan of all particles in order to the target, starting at index 0
+     */
+    public void copyLifeSpans(double[] target) {
+
+        int from = first;
+        for (int c = 0; c < cohortCount; c++) {
+            int slot = cohortSlot(c);
+            Arrays.fill(target, from - first, cohortEnd[slot] - first, cohortDeath[slot] - age);
+            from = cohortEnd[slot];
+        }
+    }
+
+    public void applyForce(int index, double forceX, double forceY) {
+
+        ax[index] += forceX;
+        ay[index] += forceY;
+    }
+
+    /**
+     * Standard movement method: calculate velocity depending on accumulated acceleration force, then calculate the position.
+     * Reset acceleration so that it can be recalculated in the next animation step.
+     */
+    public void move(int index, double maxSpeed) {
+        // set velocity depending on acceleration
+        double velocityX = vx[index] + ax[index];
+        double velocityY = vy[index] + ay[index];
+        // limit velocity to max speed
+        double speed = Math.sqrt(velocityX * velocityX + velocityY * velocityY);
+        if (speed > maxSpeed) {
+            if (speed != 0 && speed != 1) {
+                velocityX /= speed;
+                velocityY /= speed;
+            }
+            velocityX *= maxSpeed;
+            velocityY *= maxSpeed;
+        }
+        vx[index] = velocityX;
+        vy[index] = velocityY;
+        // change position depending on velocity
+        x[index] += velocityX;
+        y[index] += velocityY;
+        // clear acceleration
+        ax[index] = 0;
+        ay[index] = 0;
+    }
+
+    public double getX(int index) {
+        return x[index];
+    }
+
+    public double getY(int index) {
+        return y[index];
+    }
+
+    public double getVelocityX(int index) {
+        return vx[index];
+    }
+
+    public double getVelocityY(int index) {
+        return vy[index];
+    }
+
+    public double velocityMagnitude(int index) {
+        return Math.sqrt(vx[index] * vx[index] + vy[index] * vy[index]);
+    }
+
+    // normalizes acceleration value for processing
+    public double normalizedAcceleration(int index) {
+        return (Math.sqrt(ax[index] * ax[index] + ay[index] * ay[index]) % 10);
+    }
+
+    /**
+     * Remaining lifespan of a particle, looked up via the cohorts
+     */
+    public int getLifeSpan(int index) {
+        return (int) (cohortDeath[cohortSlot(cohortOf(index))] - age);
+    }
+
+    /**
+     * Speed limit of a particle, set at its birth
+     */
+    public double getMaxSpeed(int index) {
+        return cohortMaxSpeed[cohortSlot(cohortOf(index))];
+    }
+
+    // position of the cohort of a living particle, 0 is the oldest
+    private int cohortOf(int index) {
+
+        // binary search for the first cohort that ends after the index
+        int low = 0;
+        int high = cohortCount - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cohortEnd[cohortSlot(middle)] <= index) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+}
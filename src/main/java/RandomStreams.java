@@ -0,0 +1,63 @@
+
+import java.util.SplittableRandom;
+
+/**
+ * Seeded random number streams:
+ * Every (frame, chunk) pair gets its own generator derived only from the seed, so the work of a frame can be split
+ * across threads in any order and a run can be replayed bit for bit from its seed.
+ */
+public class RandomStreams {
+
+    // odd constants of the SplitMix64 generator
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final long CHUNK_GAMMA = 0xbf58476d1ce4e5b9L;
+
+    private final long seed;
+
+    public RandomStreams(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Generator for one chunk of work in one frame; the same arguments always return the same sequence
+     */
+    public SplittableRandom forChunk(long frame, int chunk) {
+        return new SplittableRandom(mix(mix(seed + frame * GOLDEN_GAMMA) + chunk * CHUNK_GAMMA));
+    }
+
+    /**
+     * Seed for runs that don't need to be replayed
+     */
+    public static long randomSeed() {
+        return mix(System.nanoTime() + System.identityHashCode(new Object()));
+    }
+
+    /**
+     * Two independent normally distributed values with mean 0 and standard deviation 1 (Marsaglia polar method).
+     * Both values of an accepted point are used, so a pair costs a single log and square root.
+     * @param target receives the values at index 0 and 1
+     */
+    public static void nextGaussians(SplittableRandom random, double[] target) {
+        double v1, v2, s;
+        do {
+            v1 = 2 * random.nextDouble() - 1;
+            v2 = 2 * random.nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        double multiplier = Math.sqrt(-2 * Math.log(s) / s);
+        target[0] = v1 * multiplier;
+        target[1] = v2 * multiplier;
+    }
+
+    // SplitMix64 finalizer: spreads the bits of a counter over the whole long
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+}
@@ -0,0 +1,71 @@
+
+import java.util.Arrays;
+
+/**
+ * Copy of the particle state of a completed frame:
+ * Filled by the simulation thread and drawn by the FX thread, the two never work on the same snapshot.
+ */
+public class RenderSnapshot {
+
+    // frame of the engine the snapshot was taken after, -1 if nothing was captured yet
+    long frame = -1;
+    int size = 0;
+
+    double[] x = new double[0];
+    double[] y = new double[0];
+    double[] vx = new double[0];
+    double[] vy = new double[0];
+    double[] life = new double[0];
+
+    /**
+     * Copy position, velocity and lifespan of all particles
+     */
+    void capture(ParticleStore particles, long frame) {
+
+        int size = particles.size();
+
+        if (x.length < size) {
+            // leave some room so the arrays don't have to grow every frame while the particle count increases
+            int capacity = size + (size >> 2);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            vx = Arrays.copyOf(vx, capacity);
+            vy = Arrays.copyOf(vy, capacity);
+            life = Arrays.copyOf(life, capacity);
+        }
+
+        System.arraycopy(particles.x, particles.first(), x, 0, size);
+        System.arraycopy(particles.y, particles.first(), y, 0, size);
+        System.arraycopy(particles.vx, particles.first(), vx, 0, size);
+        System.arraycopy(particles.vy, particles.first(), vy, 0, size);
+        particles.copyLifeSpans(life);
+
+        this.size = size;
+        this.frame = frame;
+    }
+
+    public long getFrame() {
+        return frame;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getX(int index) {
+        return x[index];
+    }
+
+    public double getY(int index) {
+        return y[index];
+    }
+
+    public double getSpeed(int index) {
+        return Math.sqrt(vx[index] * vx[index] + vy[index] * vy[index]);
+    }
+
+    public int getLifeSpan(int index) {
+        return (int) life[index];
+    }
+
+}
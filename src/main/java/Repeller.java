@@ -11,12 +11,15 @@ import javafx.scene.text.TextBoundsType;
  */
 public class Repeller extends Sprite {
 
-    private double factor = -1.0; // similar to attractor, but with -1 factor
+    // force source at the initial location of this node, moved with it via the simulation thread
+    private final Paddle paddle;
 
     Repeller( Vector2D location, Vector2D velocity, Vector2D acceleration, double width, double height) {
 
         super( location, velocity, acceleration, width, height);
 
+        this.paddle = new Paddle(location, Paddle.REPELLING);
+
     }
 
     /**
@@ -47,23 +50,8 @@ public class Repeller extends Sprite {
         return group;
     }
 
-    /**
-     * Repel force
-     */
-    Vector2D getForce(Particle particle) {
-
-        // calculate direction of force
-        Vector2D dir = Vector2D.subtract(position, particle.position);
-        // get distance (constrain distance)
-        double distance = dir.magnitude(); // distance between objects
-        dir.normalize(); // normalize vector (distance doesn't matter here, we just want this vector for direction)
-        distance = Utils.clamp(distance, 5, 1000); // keep distance within a reasonable range
-        // calculate magnitude
-        double force = factor * Settings.get().getRepellerStrength() / (distance * distance); // repelling force is inversely proportional to distance
-        // make a vector out of direction and magnitude
-        dir.multiply(force); // get force vector => magnitude * direction
-
-        return dir;
+    public Paddle getPaddle() {
+        return paddle;
     }
 
 }
@@ -0,0 +1,32 @@
+
+/**
+ * Plain loops of the array kernels, see Kernels.
+ * Every element is calculated with the same operations as the per-particle methods, so the results are the same.
+ */
+final class ScalarKernels {
+
+    private ScalarKernels() {
+    }
+
+    static void addConstantForce(ParticleStore particles, int from, int to, double forceX, double forceY) {
+        for (int i = from; i < to; i++) {
+            particles.applyForce(i, forceX, forceY);
+        }
+    }
+
+    static void addPaddleForce(ParticleStore particles, int from, int to, Paddle paddle, double strength) {
+        Vector2D force = new Vector2D(0, 0);
+        for (int i = from; i < to; i++) {
+            force.set(0, 0);
+            paddle.addForce(particles.x[i], particles.y[i], strength, force);
+            particles.applyForce(i, force.x, force.y);
+        }
+    }
+
+    static void move(ParticleStore particles, int from, int to, double maxSpeed) {
+        for (int i = from; i < to; i++) {
+            particles.move(i, maxSpeed);
+        }
+    }
+
+}
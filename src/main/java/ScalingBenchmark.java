@@ -0,0 +1,60 @@
+/**
+ * Command line benchmark of the scaling with the particle count:
+ * Steps the engine at steady states of doubling particle counts up to the given maximum. At a steady state a whole
+ * generation of particles expires in every frame, so the aging and removal of dead particles is measured at its worst.
+ *
+ * Prints the mean durations of the aging phase and of the whole step per frame and per particle. Linear behaviour
+ * shows as a constant time per particle for the step and a time per frame for the aging that doesn't grow faster
+ * than the particle count.
+ *
+ * Usage: ScalingBenchmark [max particles] [steps]
+ */
+public class ScalingBenchmark {
+
+    public static void main(String[] args) {
+
+        int maxParticles;
+        int steps;
+        try {
+            maxParticles = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+            steps = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid arguments: " + String.join(" ", args));
+            System.exit(1);
+            return;
+        }
+
+        System.out.println(String.format("%12s %14s %14s %14s %14s", "particles", "age ms", "age ns/p", "step ms", "step ns/p"));
+
+        int smallest = Math.max(1, maxParticles / 8);
+        for (int particles = smallest; particles <= maxParticles; particles *= 2) {
+            measure(particles, steps);
+        }
+    }
+
+    /**
+     * Steps the engine at a steady state of about the given number of particles and prints the mean durations
+     */
+    private static void measure(int particles, int steps) {
+
+        FrameParameters defaults = FrameParameters.defaults();
+        int frequency = Math.max(1, (int) (particles / defaults.particleLifeSpanMax));
+
+        SimulationEngine engine = new SimulationEngine(defaults.withEmitterFrequency(frequency), 42);
+        Experiment.values()[0].addPaddles(engine);
+
+        // fill up to the steady state and warm up the compiler
+        engine.step((int) defaults.particleLifeSpanMax * 2);
+        engine.getProfiler().reset();
+
+        long start = System.nanoTime();
+        engine.step(steps);
+        double stepNanos = (double) (System.nanoTime() - start) / steps;
+        double ageNanos = engine.getProfiler().get(FrameProfiler.Phase.AGE).getMean();
+
+        int size = engine.getParticles().size();
+        System.out.println(String.format("%,12d %14.3f %14.3f %14.3f %14.3f", size,
+                ageNanos / 1e6, ageNanos / size, stepNanos / 1e6, stepNanos / size));
+    }
+
+}
@@ -1,8 +1,10 @@
 
+import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.Property;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleObjectProperty;
@@ -10,6 +12,7 @@ import javafx.beans.value.ChangeListener;
 import javafx.geometry.Insets;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.Separator;
 import javafx.scene.control.Slider;
@@ -27,12 +30,12 @@ public class Settings {
     private String dataSetOutputPath = "C:\\Users\\jeremy\\Documents\\IntelliJ Projects\\Application Output\\";
     // number of data points gathered before processing. 1 sample = 1 list element added.
     // Adjusts dataset size, will affect CPU performance when increased.
-    private final int sampleSize = 50; // DEFAULT: 50
+    private final int sampleSize = ExperimentRun.DEFAULT_SAMPLE_SIZE; // DEFAULT: 50
     // frame size for initialization
-    private final int initializationWindow = 250; // DEFAULT: 250
+    private final int initializationWindow = ExperimentRun.DEFAULT_INITIALIZATION_WINDOW; // DEFAULT: 250
     // desired frame sampling. Tracked by numberOfFramesCaptured.
     // Adjusts the "smoothness" of the line.
-    private final int frameSamplingWindow = 20; // DEFAULT: 20
+    private final int frameSamplingWindow = ExperimentRun.DEFAULT_FRAME_SAMPLING_WINDOW; // DEFAULT: 20
 
     // scene settings
     // -------------------------------
@@ -52,10 +55,14 @@ public class Settings {
     private DoubleProperty attractorStrength = new SimpleDoubleProperty( getInitialAttractorStrengthValue());
     // repeller and attractor radius
     private DoubleProperty paddleRadius = new SimpleDoubleProperty(75);
+    // distance beyond which repellers and attractors have no effect, 0 = unlimited
+    private DoubleProperty paddleRange = new SimpleDoubleProperty( getInitialPaddleRangeValue());
     // just some artificial strength value that matches our needs.
     private ObjectProperty<Vector2D> forceGravity = new SimpleObjectProperty<>(new Vector2D(0,0));
     private DoubleProperty gravityX = new SimpleDoubleProperty( forceGravity.getValue().x);
     private DoubleProperty gravityY = new SimpleDoubleProperty( forceGravity.getValue().y);
+    // grid spacing of the cached paddle forces, below 1 px = exact forces
+    private DoubleProperty forceFieldResolution = new SimpleDoubleProperty( getInitialForceFieldResolutionValue());
     // emitter
     // -------------------------------
     private IntegerProperty emitterFrequency = new SimpleIntegerProperty((int)getInitialEmitterFrequencyValue()); // particles per frame
@@ -67,15 +74,33 @@ public class Settings {
     private DoubleProperty particleHeight = new SimpleDoubleProperty(getInitialParticleSizeValue());
     private DoubleProperty particleLifeSpanMax = new SimpleDoubleProperty( 256);
     private DoubleProperty particleMaxSpeed = new SimpleDoubleProperty( getInitialParticleMaxSpeedValue());
+    // interaction
+    // -------------------------------
+    // attraction between the particles, 0 = off
+    private DoubleProperty particleGravity = new SimpleDoubleProperty( getInitialParticleGravityValue());
+    // accuracy of the approximation, smaller is more accurate but slower
+    private DoubleProperty openingAngle = new SimpleDoubleProperty( getInitialOpeningAngleValue());
+    // collisions between the particles, restitution 1 = elastic
+    private BooleanProperty particleCollisions = new SimpleBooleanProperty( FrameParameters.DEFAULT_PARTICLE_COLLISIONS);
+    private DoubleProperty restitution = new SimpleDoubleProperty( getInitialRestitutionValue());
+    // rendering
+    // -------------------------------
+    // particle count above which the density heatmap is drawn instead of the particles
+    private IntegerProperty heatmapThreshold = new SimpleIntegerProperty(300_000);
     // initial properties
-    private final double initialEmitterFrequencyValue = 100;
-    private final double initialEmitterLocationYValue = 340;
-    private final double initialParticleSizeValue = 1.75;
-    private final double initialParticleMaxSpeedValue = 4;
-    private final double initialAttractorStrengthValue = 500;
-    private final double initialRepellerStrengthValue = 500;
-    private final double initialForceGravityXValue = 0;
-    private final double initialForceGravityYValue = 0;
+    private final double initialEmitterFrequencyValue = FrameParameters.DEFAULT_EMITTER_FREQUENCY;
+    private final double initialEmitterLocationYValue = FrameParameters.DEFAULT_EMITTER_LOCATION_Y;
+    private final double initialParticleSizeValue = FrameParameters.DEFAULT_PARTICLE_SIZE;
+    private final double initialParticleMaxSpeedValue = FrameParameters.DEFAULT_PARTICLE_MAX_SPEED;
+    private final double initialAttractorStrengthValue = FrameParameters.DEFAULT_ATTRACTOR_STRENGTH;
+    private final double initialRepellerStrengthValue = FrameParameters.DEFAULT_REPELLER_STRENGTH;
+    private final double initialForceGravityXValue = FrameParameters.DEFAULT_GRAVITY_X;
+    private final double initialForceGravityYValue = FrameParameters.DEFAULT_GRAVITY_Y;
+    private final double initialParticleGravityValue = FrameParameters.DEFAULT_PARTICLE_GRAVITY;
+    private final double initialOpeningAngleValue = FrameParameters.DEFAULT_OPENING_ANGLE;
+    private final double initialRestitutionValue = FrameParameters.DEFAULT_RESTITUTION;
+    private final double initialForceFieldResolutionValue = FrameParameters.DEFAULT_FORCE_FIELD_RESOLUTION;
+    private final double initialPaddleRangeValue = FrameParameters.DEFAULT_PADDLE_RANGE;
     // Node reference variables
     Slider emitterFrequencySlider = new Slider();
     Slider emitterLocationYSlider = new Slider();
@@ -85,6 +110,13 @@ public class Settings {
     Slider repellerStrengthSlider = new Slider();
     Slider forceGravityXSlider = new Slider();
     Slider forceGravityYSlider = new Slider();
+    Slider forceFieldResolutionSlider = new Slider();
+    Slider paddleRangeSlider = new Slider();
+    Slider particleGravitySlider = new Slider();
+    Slider openingAngleSlider = new Slider();
+    CheckBox particleCollisionsCheckBox = new CheckBox();
+    Slider restitutionSlider = new Slider();
+    Slider heatmapThresholdSlider = new Slider();
     // test execution
     Button experimentButton1 = new Button("    Experiment 1    ");
     Label progressLabel1 = new Label("Progress:   ");
@@ -180,6 +212,33 @@ public class Settings {
         gp.addRow(rowIndex++, new Label("Gravity X"), forceGravityXSlider);
         forceGravityYSlider = createNumberSlider( gravityY, -0.5, 0.5);
         gp.addRow(rowIndex++, new Label("Gravity Y"), forceGravityYSlider);
+        forceFieldResolutionSlider = createNumberSlider( forceFieldResolution, 0, 20);
+        // whole pixels: 0 is off, the smallest spacing of a field is 1 px
+        forceFieldResolutionSlider.setMajorTickUnit(5);
+        forceFieldResolutionSlider.setMinorTickCount(4);
+        forceFieldResolutionSlider.setBlockIncrement(1);
+        forceFieldResolutionSlider.setSnapToTicks(true);
+        gp.addRow(rowIndex++, new Label("Field Grid"), forceFieldResolutionSlider);
+        paddleRangeSlider = createNumberSlider( paddleRange, 0, 1000);
+        gp.addRow(rowIndex++, new Label("Paddle Range"), paddleRangeSlider);
+
+        // interaction
+        gp.addRow(rowIndex++, createSeparator( "Interaction"));
+
+        particleGravitySlider = createNumberSlider( particleGravity, 0, 1);
+        gp.addRow(rowIndex++, new Label("Gravity"), particleGravitySlider);
+        openingAngleSlider = createNumberSlider( openingAngle, 0.1, 1.5);
+        gp.addRow(rowIndex++, new Label("Theta"), openingAngleSlider);
+        particleCollisionsCheckBox.selectedProperty().bindBidirectional(particleCollisions);
+        gp.addRow(rowIndex++, new Label("Collisions"), particleCollisionsCheckBox);
+        restitutionSlider = createNumberSlider( restitution, 0, 1);
+        gp.addRow(rowIndex++, new Label("Restitution"), restitutionSlider);
+
+        // rendering
+        gp.addRow(rowIndex++, createSeparator( "Rendering"));
+
+        heatmapThresholdSlider = createNumberSlider( heatmapThreshold, 0, 1_000_000);
+        gp.addRow(rowIndex++, new Label("Heatmap"), heatmapThresholdSlider);
         // run test button
         gp.addRow(rowIndex++, createSeparator( "Run Test"));
         gp.addRow(rowIndex++, createExecutePanel(experimentButton1, progressLabel1, percentageLabel1));
@@ -273,6 +332,54 @@ public class Settings {
         return slider;
     }
 
+    /**
+     * Capture the current values of all simulation settings
+     */
+    public FrameParameters snapshot() {
+        return new FrameParameters.Builder()
+                .canvasWidth(getCanvasWidth())
+                .canvasHeight(getCanvasHeight())
+                .gravityX(gravityX.get())
+                .gravityY(gravityY.get())
+                .attractorStrength(getAttractorStrength())
+                .repellerStrength(getRepellerStrength())
+                .paddleRadius(getPaddleRadius())
+                .paddleRange(getPaddleRange())
+                .emitterFrequency(getEmitterFrequency())
+                .emitterWidth(getEmitterWidth())
+                .emitterLocationY(getEmitterLocationY())
+                .particleWidth(getParticleWidth())
+                .particleHeight(getParticleHeight())
+                .particleLifeSpanMax(getParticleLifeSpanMax())
+                .particleMaxSpeed(getParticleMaxSpeed())
+                .particleGravity(getParticleGravity())
+                .openingAngle(getOpeningAngle())
+                .particleCollisions(isParticleCollisions())
+                .restitution(getRestitution())
+                .forceFieldResolution(getForceFieldResolution())
+                .build();
+    }
+
+    /**
+     * Move the sliders to the given parameters, e.g. to show the parameters of an experiment in progress
+     */
+    public void showParameters(FrameParameters parameters) {
+        emitterFrequencySlider.setValue(parameters.emitterFrequency);
+        emitterLocationYSlider.setValue(parameters.emitterLocationY);
+        particleSizeSlider.setValue(parameters.particleWidth);
+        particleMaxSpeedSlider.setValue(parameters.particleMaxSpeed);
+        attractorStrengthSlider.setValue(parameters.attractorStrength);
+        repellerStrengthSlider.setValue(parameters.repellerStrength);
+        forceGravityXSlider.setValue(parameters.gravityX);
+        forceGravityYSlider.setValue(parameters.gravityY);
+        particleGravitySlider.setValue(parameters.particleGravity);
+        openingAngleSlider.setValue(parameters.openingAngle);
+        particleCollisionsCheckBox.setSelected(parameters.particleCollisions);
+        restitutionSlider.setValue(parameters.restitution);
+        forceFieldResolutionSlider.setValue(parameters.forceFieldResolution);
+        paddleRangeSlider.setValue(parameters.paddleRange);
+    }
+
     // configuration getters
     public String getDataSetOutputPath() {
         return dataSetOutputPath;
@@ -311,6 +418,21 @@ public class Settings {
     public double getInitialForceGravityYValue() {
         return initialForceGravityYValue;
     }
+    public double getInitialParticleGravityValue() {
+        return initialParticleGravityValue;
+    }
+    public double getInitialOpeningAngleValue() {
+        return initialOpeningAngleValue;
+    }
+    public double getInitialRestitutionValue() {
+        return initialRestitutionValue;
+    }
+    public double getInitialForceFieldResolutionValue() {
+        return initialForceFieldResolutionValue;
+    }
+    public double getInitialPaddleRangeValue() {
+        return initialPaddleRangeValue;
+    }
     // -------------------------------
     // auto-generated begin
     // -------------------------------
@@ -369,6 +491,15 @@ public class Settings {
         this.repellerStrengthProperty().set(repellerStrength);
     }
     public final double getPaddleRadius() { return this.paddleRadius.doubleValue(); }
+    public final DoubleProperty paddleRangeProperty() {
+        return this.paddleRange;
+    }
+    public final double getPaddleRange() {
+        return this.paddleRangeProperty().get();
+    }
+    public final void setPaddleRange(final double paddleRange) {
+        this.paddleRangeProperty().set(paddleRange);
+    }
     public final ObjectProperty<Vector2D> forceGravityProperty() {
         return this.forceGravity;
     }
@@ -441,6 +572,60 @@ public class Settings {
     public final void setParticleMaxSpeed(final double particleMaxSpeed) {
         this.particleMaxSpeedProperty().set(particleMaxSpeed);
     }
+    public final DoubleProperty particleGravityProperty() {
+        return this.particleGravity;
+    }
+    public final double getParticleGravity() {
+        return this.particleGravityProperty().get();
+    }
+    public final void setParticleGravity(final double particleGravity) {
+        this.particleGravityProperty().set(particleGravity);
+    }
+    public final DoubleProperty openingAngleProperty() {
+        return this.openingAngle;
+    }
+    public final double getOpeningAngle() {
+        return this.openingAngleProperty().get();
+    }
+    public final void setOpeningAngle(final double openingAngle) {
+        this.openingAngleProperty().set(openingAngle);
+    }
+    public final BooleanProperty particleCollisionsProperty() {
+        return this.particleCollisions;
+    }
+    public final boolean isParticleCollisions() {
+        return this.particleCollisionsProperty().get();
+    }
+    public final void setParticleCollisions(final boolean particleCollisions) {
+        this.particleCollisionsProperty().set(particleCollisions);
+    }
+    public final DoubleProperty restitutionProperty() {
+        return this.restitution;
+    }
+    public final double getRestitution() {
+        return this.restitutionProperty().get();
+    }
+    public final void setRestitution(final double restitution) {
+        this.restitutionProperty().set(restitution);
+    }
+    public final IntegerProperty heatmapThresholdProperty() {
+        return this.heatmapThreshold;
+    }
+    public final int getHeatmapThreshold() {
+        return this.heatmapThresholdProperty().get();
+    }
+    public final void setHeatmapThreshold(final int heatmapThreshold) {
+        this.heatmapThresholdProperty().set(heatmapThreshold);
+    }
+    public final DoubleProperty forceFieldResolutionProperty() {
+        return this.forceFieldResolution;
+    }
+    public final double getForceFieldResolution() {
+        return this.forceFieldResolutionProperty().get();
+    }
+    public final void setForceFieldResolution(final double forceFieldResolution) {
+        this.forceFieldResolutionProperty().set(forceFieldResolution);
+    }
     public final DoubleProperty toolbarWidthProperty() {
         return this.toolbarWidth;
     }
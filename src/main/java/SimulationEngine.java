@@ -0,0 +1,267 @@
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Headless simulation:
+ * Owns the particles, the force sources and the parameters and advances them one frame per step.
+ * Doesn't depend on JavaFX, rendering and user interaction are left to the caller.
+ */
+public class SimulationEngine {
+
+    /**
+     * Called during a step after the forces were accumulated and before the particles are moved,
+     * i.e. while the acceleration of the current frame is still available.
+     */
+    public interface FrameListener {
+        void onForcesApplied(SimulationEngine engine);
+    }
+
+    /**
+     * Called at the end of a step before the particles are aged, i.e. with the lifespans they have in the frame,
+     * e.g. to copy the particles for rendering.
+     */
+    public interface SnapshotListener {
+        void onSnapshot(ParticleStore particles, long frame);
+    }
+
+    private final ParticleStore particles = new ParticleStore();
+    private final List<Paddle> attractors = new ArrayList<>();
+    private final List<Paddle> repellers = new ArrayList<>();
+
+    private final ForceKernel forceKernel = new ForceKernel();
+    private final CollisionStage collisionStage = new CollisionStage();
+
+    // index for the collision queries, valid for the frame it was built in
+    private final SpatialGrid grid = new SpatialGrid(SpatialGrid.DEFAULT_CELL_SIZE);
+    private long gridFrame = -1;
+
+    // emission draws from one stream per frame and chunk of new particles
+    private final RandomStreams randomStreams;
+
+    // may be replaced from another thread while the engine steps, it is read once per step
+    private volatile FrameParameters parameters;
+    private FrameListener frameListener;
+    private SnapshotListener snapshotListener;
+
+    // number of completed steps
+    private volatile long frame = 0;
+    // colliding particle pairs of the last step
+    private int particleCollisions = 0;
+
+    // durations of the phases of every step
+    private final FrameProfiler profiler = new FrameProfiler();
+    // durations of the phases of the current step, for the monitoring events
+    private final long[] stepDurations = new long[FrameProfiler.Phase.values().length];
+
+    public SimulationEngine(FrameParameters parameters) {
+        this(parameters, RandomStreams.randomSeed());
+    }
+
+    /**
+     * Engine whose runs can be replayed: the same seed, parameters and paddles produce the same particles
+     */
+    public SimulationEngine(FrameParameters parameters, long seed) {
+        this.parameters = parameters;
+        this.randomStreams = new RandomStreams(seed);
+    }
+
+    /**
+     * Advance the simulation by one frame
+     */
+    public void step() {
+
+        FrameParameters parameters = this.parameters;
+        // monitoring event spanning the whole step
+        Object frameEvent = SimulationEvents.frameStarted();
+        Arrays.fill(stepDurations, 0);
+        long time = System.nanoTime();
+
+        // add new particles
+        emitParticles(parameters);
+        time = recordPhase(FrameProfiler.Phase.EMIT, time);
+        // apply forces: gravity, attractors and repellers in a single pass
+        forceKernel.apply(particles, attractors, repellers, parameters, parameters.paddleRange > 0 ? getGrid() : null);
+        time = recordPhase(FrameProfiler.Phase.FORCES, time);
+        // e.g. data collection of experiments
+        if (frameListener != null) {
+            frameListener.onForcesApplied(this);
+            time = recordPhase(FrameProfiler.Phase.METRICS, time);
+        }
+        // move particles: apply acceleration, calculate velocity and position; every particle keeps the max speed of its birth
+        particles.forEachChunk((chunk, from, to) ->
+                particles.forEachCohortRange(from, to, (cohortFrom, cohortTo, maxSpeed) -> Kernels.move(particles, cohortFrom, cohortTo, maxSpeed)));
+        time = recordPhase(FrameProfiler.Phase.MOVE, time);
+        // collisions between the particles at their new positions
+        if (parameters.particleCollisions) {
+            particleCollisions = collisionStage.apply(particles, parameters.particleWidth / 2, parameters.restitution,
+                    parameters.canvasWidth, parameters.canvasHeight);
+            time = recordPhase(FrameProfiler.Phase.COLLISIONS, time);
+        } else {
+            particleCollisions = 0;
+        }
+        // the particles as they are drawn in this frame, numbered by the completed steps; not part of the phases
+        if (snapshotListener != null) {
+            snapshotListener.onSnapshot(particles, frame + 1);
+            time = System.nanoTime();
+        }
+        // life span of particle, remove all particles that aren't visible anymore
+        particles.age();
+        recordPhase(FrameProfiler.Phase.AGE, time);
+
+        SimulationEvents.frame(frameEvent, frame, particles.size(), stepDurations);
+
+        frame++;
+    }
+
+    // record the duration of the phase since the given start, returns the start of the next phase
+    private long recordPhase(FrameProfiler.Phase phase, long start) {
+
+        long now = profiler.record(phase, start);
+        stepDurations[phase.ordinal()] = now - start;
+
+        return now;
+    }
+
+    /**
+     * Advance the simulation by the given number of frames
+     */
+    public void step(int frames) {
+        for (int i = 0; i < frames; i++) {
+            step();
+        }
+    }
+
+    /**
+     * Reserve room for all particles of this frame at once and fill it in parallel chunks.
+     * The streams are split by chunk of new particles, so the result doesn't depend on how the chunks are processed.
+     */
+    private void emitParticles(FrameParameters parameters) {
+
+        int count = parameters.emitterFrequency;
+        if (count <= 0) {
+            return;
+        }
+
+        // -1 because we want [0..255] for an amount of 256
+        int first = particles.reserve(count, parameters.particleLifeSpanMax - 1, parameters.particleMaxSpeed);
+        int chunks = (count + ParticleStore.CHUNK_SIZE - 1) / ParticleStore.CHUNK_SIZE;
+        long frame = this.frame;
+
+        // emitter properties
+        double emitterLeft = parameters.canvasWidth / 2 - parameters.emitterWidth / 2;
+        double emitterWidth = parameters.emitterWidth;
+        double y = parameters.emitterLocationY;
+
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            SplittableRandom random = randomStreams.forChunk(frame, chunk);
+            double[] gaussians = new double[2];
+            int from = first + chunk * ParticleStore.CHUNK_SIZE;
+            int to = Math.min(from + ParticleStore.CHUNK_SIZE, first + count);
+            for (int i = from; i < to; i++) {
+                // random position
+                double x = emitterLeft + random.nextDouble() * emitterWidth;
+                // create motion data
+                RandomStreams.nextGaussians(random, gaussians);
+                double vx = gaussians[0] * 0.3;
+                double vy = gaussians[1] * 0.3 - 1.0;
+                // register particle
+                particles.set(i, x, y, vx, vy);
+            }
+        });
+    }
+
+    /**
+     * Grid over the particle positions of the current frame, built when it is first needed during the frame
+     */
+    public SpatialGrid getGrid() {
+
+        if (gridFrame != frame) {
+            grid.build(particles, parameters.canvasWidth, parameters.canvasHeight);
+            gridFrame = frame;
+        }
+
+        return grid;
+    }
+
+    /**
+     * Collisions of all attractors and repellers with the particles in the current frame
+     * @param hitRadius particles within this distance of a paddle count as collisions, 0 for the particles in the pixel of its position
+     */
+    public PaddleMetrics measurePaddles(double hitRadius) {
+        return PaddleMetrics.measure(getGrid(), particles, attractors, repellers, hitRadius);
+    }
+
+    /**
+     * Number of colliding particle pairs in the collision stage of the last step, 0 if collisions are disabled
+     */
+    public int getParticleCollisions() {
+        return particleCollisions;
+    }
+
+    /**
+     * Particle-paddle pairs whose evaluation was skipped in the last step because the particle was out of the paddle's range
+     */
+    public long getSkippedPaddlePairs() {
+        return forceKernel.getSkippedPairs();
+    }
+
+    /**
+     * Durations of the phases of the steps; the caller may record further phases, e.g. rendering
+     */
+    public FrameProfiler getProfiler() {
+        return profiler;
+    }
+
+    public void addAttractor(Paddle attractor) {
+        attractors.add(attractor);
+    }
+
+    public void addRepeller(Paddle repeller) {
+        repellers.add(repeller);
+    }
+
+    public void removeRepeller(Paddle repeller) {
+        repellers.remove(repeller);
+    }
+
+    public ParticleStore getParticles() {
+        return particles;
+    }
+
+    public List<Paddle> getAttractors() {
+        return attractors;
+    }
+
+    public List<Paddle> getRepellers() {
+        return repellers;
+    }
+
+    public FrameParameters getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(FrameParameters parameters) {
+        this.parameters = parameters;
+    }
+
+    public void setFrameListener(FrameListener frameListener) {
+        this.frameListener = frameListener;
+    }
+
+    public void setSnapshotListener(SnapshotListener snapshotListener) {
+        this.snapshotListener = snapshotListener;
+    }
+
+    public long getFrame() {
+        return frame;
+    }
+
+    public long getSeed() {
+        return randomStreams.getSeed();
+    }
+
+}
@@ -0,0 +1,42 @@
+
+/**
+ * Monitoring hooks of the simulation loop and the experiments.
+ *
+ * This is the Java 10 variant, it ignores the events. The multi-release jar contains a Java 17 variant of this class
+ * (src/main/java17) which emits them as Java Flight Recorder events.
+ */
+final class SimulationEvents {
+
+    private SimulationEvents() {
+    }
+
+    /**
+     * Start of a step of the engine
+     * @return handle of the step for frame(), null if it isn't recorded
+     */
+    static Object frameStarted() {
+        return null;
+    }
+
+    /**
+     * A completed step of the engine
+     * @param started handle returned by frameStarted() at the start of the step
+     * @param phaseDurations nanoseconds per FrameProfiler.Phase, 0 for the phases that didn't run
+     */
+    static void frame(Object started, long frame, int particles, long[] phaseDurations) {
+    }
+
+    /**
+     * A sample of an experiment, i.e. the data of a frame sampling window
+     */
+    static void experimentSample(String experiment, String phase, int sample, double collisions, double averageVelocity,
+                                 double averageAcceleration, double particleCollisions) {
+    }
+
+    /**
+     * A completed experiment
+     */
+    static void experimentCompleted(String experiment, long seed, int samples, long frame) {
+    }
+
+}
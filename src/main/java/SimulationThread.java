@@ -0,0 +1,130 @@
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Steps the engine on its own thread with a fixed timestep and publishes every completed frame for rendering.
+ * All changes to the engine (paddles, frame listener) are queued and run on the simulation thread between two steps,
+ * only the parameters are handed over directly.
+ * If a step fails, the thread logs the error and stops; the last published frame stays available.
+ */
+public class SimulationThread {
+
+    private final SimulationEngine engine;
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+
+    // 0 = as fast as possible
+    private final int stepsPerSecond;
+
+    private final Thread thread;
+    private volatile boolean running = false;
+
+    // steps per second measured over the last second
+    private volatile double stepRate = 0;
+
+    // error that stopped the simulation, null while it runs normally
+    private volatile Throwable failure;
+
+    public SimulationThread(SimulationEngine engine, int stepsPerSecond) {
+
+        this.engine = engine;
+        this.stepsPerSecond = stepsPerSecond;
+        // published before the particles are aged, so they are drawn with the lifespan they have in the frame
+        this.engine.setSnapshotListener(snapshots::publish);
+
+        this.thread = new Thread(this::run, "Simulation");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        try {
+            loop();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            running = false;
+            stepRate = 0;
+            System.out.println("Simulation stopped at frame " + engine.getFrame() + ": " + e);
+            e.printStackTrace();
+        }
+    }
+
+    private void loop() {
+
+        long stepNanos = stepsPerSecond > 0 ? 1_000_000_000L / stepsPerSecond : 0;
+        long nextStep = System.nanoTime();
+
+        long rateStartTime = nextStep;
+        long rateStartFrame = engine.getFrame();
+
+        while (running) {
+            // apply changes from other threads
+            Runnable command;
+            while ((command = commands.poll()) != null) {
+                command.run();
+            }
+
+            engine.step();
+
+            long now = System.nanoTime();
+            // measure step rate
+            if (now - rateStartTime >= 1_000_000_000L) {
+                stepRate = (engine.getFrame() - rateStartFrame) * 1_000_000_000.0 / (now - rateStartTime);
+                rateStartTime = now;
+                rateStartFrame = engine.getFrame();
+            }
+            // wait for the next step
+            if (stepNanos > 0) {
+                nextStep += stepNanos;
+                long delay = nextStep - now;
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                } else if (-delay > stepNanos * 5) {
+                    // too far behind: don't try to catch up with a burst of steps
+                    nextStep = now;
+                }
+            }
+        }
+    }
+
+    /**
+     * Run the command on the simulation thread before the next step
+     */
+    public void execute(Runnable command) {
+        commands.add(command);
+    }
+
+    public void setParameters(FrameParameters parameters) {
+        engine.setParameters(parameters);
+    }
+
+    /**
+     * Latest completed frame, for the FX thread
+     */
+    public RenderSnapshot acquireSnapshot() {
+        return snapshots.acquire();
+    }
+
+    /**
+     * Error that stopped the simulation thread, null if it didn't fail
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    public double getStepRate() {
+        return ((int) (stepRate * 1000)) / 1000.0; // reduce to 3 decimals
+    }
+
+}
@@ -0,0 +1,36 @@
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free triple buffer of render snapshots:
+ * The writer always owns one snapshot and the reader another one, the third one holds the latest completed frame.
+ * Publishing and acquiring swap with the latest one, so neither side ever waits for the other.
+ */
+public class SnapshotBuffer {
+
+    // owned by the writer
+    private RenderSnapshot writing = new RenderSnapshot();
+    // latest completed snapshot
+    private final AtomicReference<RenderSnapshot> latest = new AtomicReference<>(new RenderSnapshot());
+    // owned by the reader
+    private RenderSnapshot reading = new RenderSnapshot();
+
+    /**
+     * Writer: capture the particles and make them the latest snapshot
+     */
+    public void publish(ParticleStore particles, long frame) {
+        writing.capture(particles, frame);
+        writing = latest.getAndSet(writing);
+    }
+
+    /**
+     * Reader: the most recent snapshot; the same one as before if nothing new was published in between
+     */
+    public RenderSnapshot acquire() {
+        if (latest.get().frame > reading.frame) {
+            reading = latest.getAndSet(reading);
+        }
+        return reading;
+    }
+
+}
@@ -0,0 +1,272 @@
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Uniform grid over the particle positions of a frame:
+ * The particles are sorted by cell (counting sort), so the particles near a point can be found without looking at all particles.
+ * Particles outside of the grid area aren't indexed.
+ *
+ * The sort runs in parallel: the particles are split into blocks which are counted and placed independently, every
+ * block writes to its own part of each cell. The blocks are in index order, so the result is the same as sequentially.
+ * The number of blocks is limited by the particles per cell, so the counters never outnumber the particles;
+ * with a single block the particles are sorted sequentially.
+ */
+public class SpatialGrid {
+
+    public static final double DEFAULT_CELL_SIZE = 8;
+
+    // blocks per thread of the common pool, more blocks balance the load better but need more counters
+    private static final int BLOCKS_PER_THREAD = 4;
+    // cells per task when the counts of the blocks are combined
+    private static final int CELLS_PER_TASK = 4096;
+
+    /**
+     * Called for every particle found by a query
+     */
+    public interface Visitor {
+        void visit(int index);
+    }
+
+    private final double cellSize;
+
+    private int columns = 0;
+    private int rows = 0;
+
+    // cell of every particle, particles outside of the area get the number of cells
+    private int[] cellOf = new int[0];
+    // particle indices sorted by cell, ordered by index within a cell
+    private int[] sorted = new int[0];
+    // the particles of cell c are sorted[cellStart[c]] to sorted[cellStart[c + 1] - 1]
+    private int[] cellStart = new int[2];
+    // per block and cell: number of particles, then the position of the block's first particle within the cell
+    private int[] blockCounts = new int[0];
+
+    public SpatialGrid(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    // number of particles within the area of the grid
+    public int indexedCount() {
+        return cellStart[columns * rows];
+    }
+
+    // the particles of a cell are particleAt(cellStart(cell)) to particleAt(cellStart(cell + 1) - 1)
+    int cellStart(int cell) {
+        return cellStart[cell];
+    }
+
+    int particleAt(int position) {
+        return sorted[position];
+    }
+
+    /**
+     * Index the current positions of all particles within [0, width) x [0, height)
+     */
+    public void build(ParticleStore particles, double width, double height) {
+
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        int cells = columns * rows;
+
+        int first = particles.first();
+        int size = particles.size();
+
+        if (cellOf.length < size) {
+            cellOf = new int[size + (size >> 2)];
+            sorted = new int[cellOf.length];
+        }
+        if (cellStart.length < cells + 2) {
+            cellStart = new int[cells + 2];
+        }
+
+        // cell of every particle
+        int[] cellOf = this.cellOf;
+        particles.forEachChunk((chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                cellOf[i - first] = cellOf(particles.x[i], particles.y[i], cells);
+            }
+        });
+
+        // blocks of particles, the cell of the particles outside of the area is counted as well.
+        // Every block has a counter per cell, so there are at most as many counters as particles:
+        // fine grids with few particles per cell are sorted on the calling thread, like small particle counts
+        int counters = cells + 1;
+        int blocks = Math.max(1, Math.min(Math.min((size + ParticleStore.CHUNK_SIZE - 1) / ParticleStore.CHUNK_SIZE,
+                BLOCKS_PER_THREAD * ForkJoinPool.getCommonPoolParallelism()), size / counters));
+        if (blocks == 1) {
+            sortSequentially(first, size, cells);
+            return;
+        }
+        int blockSize = (size + blocks - 1) / blocks;
+        if (blockCounts.length < blocks * counters) {
+            blockCounts = new int[blocks * counters];
+        }
+        int[] blockCounts = this.blockCounts;
+
+        // count the particles per block and cell
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            int offset = block * counters;
+            Arrays.fill(blockCounts, offset, offset + counters, 0);
+            int to = Math.min(size, (block + 1) * blockSize);
+            for (int k = block * blockSize; k < to; k++) {
+                blockCounts[offset + cellOf[k]]++;
+            }
+        });
+
+        // per cell: total, and the position of every block within the cell
+        IntStream.range(0, (counters + CELLS_PER_TASK - 1) / CELLS_PER_TASK).parallel().forEach(task -> {
+            int to = Math.min(counters, (task + 1) * CELLS_PER_TASK);
+            for (int cell = task * CELLS_PER_TASK; cell < to; cell++) {
+                int total = 0;
+                for (int block = 0; block < blocks; block++) {
+                    int count = blockCounts[block * counters + cell];
+                    blockCounts[block * counters + cell] = total;
+                    total += count;
+                }
+                cellStart[cell + 1] = total;
+            }
+        });
+
+        // start of every cell
+        cellStart[0] = 0;
+        for (int cell = 0; cell <= cells; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+
+        // place the particles of every block, in order behind the ones of the previous blocks
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            int offset = block * counters;
+            int to = Math.min(size, (block + 1) * blockSize);
+            for (int k = block * blockSize; k < to; k++) {
+                int cell = cellOf[k];
+                sorted[cellStart[cell] + blockCounts[offset + cell]++] = first + k;
+            }
+        });
+    }
+
+    // counting sort on the calling thread, for few particles or fine grids
+    private void sortSequentially(int first, int size, int cells) {
+
+        // count the particles per cell, shifted by one so that the prefix sum gives the start of every cell
+        Arrays.fill(cellStart, 0, cells + 2, 0);
+        for (int k = 0; k < size; k++) {
+            cellStart[cellOf[k] + 1]++;
+        }
+        for (int cell = 0; cell <= cells; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+
+        // place the particles, using the start of their cell as cursor
+        for (int k = 0; k < size; k++) {
+            sorted[cellStart[cellOf[k]]++] = first + k;
+        }
+        // the cursors ended at the start of the following cell, shift them back
+        System.arraycopy(cellStart, 0, cellStart, 1, cells + 1);
+        cellStart[0] = 0;
+    }
+
+    private int cellOf(double x, double y, int outside) {
+
+        if (!isIndexed(x, y)) {
+            return outside;
+        }
+
+        return (int) (y / cellSize) * columns + (int) (x / cellSize);
+    }
+
+    /**
+     * Whether a particle at the given position is found by the queries, i.e. it is within the area of the grid
+     */
+    public boolean isIndexed(double x, double y) {
+        // truncated like the pixel comparisons, so positions in (-1, 0) belong to the first column or row
+        return x > -1 && y > -1 && (int) (x / cellSize) < columns && (int) (y / cellSize) < rows;
+    }
+
+    /**
+     * Visit all particles within the radius around the given point.
+     * A radius of 0 visits the particles in the same pixel, i. e. the ones with (int) x == (int) pointX and (int) y == (int) pointY.
+     */
+    public void forEachHit(ParticleStore particles, double pointX, double pointY, double radius, Visitor visitor) {
+
+        int lastRow = lastHitRow(pointY, radius);
+        for (int row = firstHitRow(pointY, radius); row <= lastRow; row++) {
+            forEachHitInRow(particles, pointX, pointY, radius, row, visitor);
+        }
+    }
+
+    /**
+     * First row of cells a hit query around the point has to look at
+     */
+    public int firstHitRow(double pointY, double radius) {
+        return Math.max(0, (int) Math.floor(queryMin(pointY, radius) / cellSize));
+    }
+
+    /**
+     * Last row of cells a hit query around the point has to look at, less than the first row if there is none
+     */
+    public int lastHitRow(double pointY, double radius) {
+        return Math.min(rows - 1, (int) Math.floor(queryMax(pointY, radius) / cellSize));
+    }
+
+    /**
+     * Part of a hit query restricted to one row of cells, so that the rows can be processed independently
+     */
+    public void forEachHitInRow(ParticleStore particles, double pointX, double pointY, double radius, int row, Visitor visitor) {
+
+        int minColumn = Math.max(0, (int) Math.floor(queryMin(pointX, radius) / cellSize));
+        int maxColumn = Math.min(columns - 1, (int) Math.floor(queryMax(pointX, radius) / cellSize));
+
+        if (minColumn > maxColumn) {
+            return;
+        }
+
+        // the cells of a row are adjacent, so their particles too
+        int from = cellStart[row * columns + minColumn];
+        int to = cellStart[row * columns + maxColumn + 1];
+
+        if (radius <= 0) {
+            int pixelX = (int) pointX;
+            int pixelY = (int) pointY;
+            for (int k = from; k < to; k++) {
+                int index = sorted[k];
+                if ((int) particles.x[index] == pixelX && (int) particles.y[index] == pixelY) {
+                    visitor.visit(index);
+                }
+            }
+        } else {
+            double radiusSquared = radius * radius;
+            for (int k = from; k < to; k++) {
+                int index = sorted[k];
+                double dx = particles.x[index] - pointX;
+                double dy = particles.y[index] - pointY;
+                if (dx * dx + dy * dy <= radiusSquared) {
+                    visitor.visit(index);
+                }
+            }
+        }
+    }
+
+    // bounds of the area a hit query looks at; the pixel query includes the neighbouring pixels because of the truncation of negative values
+    private static double queryMin(double point, double radius) {
+        return radius <= 0 ? (int) point - 1 : point - radius;
+    }
+
+    private static double queryMax(double point, double radius) {
+        return radius <= 0 ? (int) point + 1 : point + radius;
+    }
+
+}
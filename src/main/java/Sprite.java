@@ -4,7 +4,8 @@ import javafx.scene.layout.Region;
 
 /**
  * Sprite base class:
- * Contains information necessary for the position, velocity, and acceleration of a particle.
+ * Contains information necessary for the position, velocity, and acceleration of an attractor or repeller node.
+ * Particles aren't sprites, they are kept in the ParticleStore.
  */
 public abstract class Sprite extends Region {
 
@@ -12,7 +13,6 @@ public abstract class Sprite extends Region {
     Vector2D velocity;
     Vector2D acceleration;
 
-    private double maxSpeed = Settings.get().getParticleMaxSpeed();
     private double radius;
 
     Node view;
@@ -24,9 +24,6 @@ public abstract class Sprite extends Region {
 
     double angle;
 
-    double lifeSpanMax = Settings.get().getParticleLifeSpanMax() - 1; // -1 because we want [0..255] for an amount of 256; otherwise we'd get DivByZero in the logic; will fix it later
-    double lifeSpan = lifeSpanMax;
-
     public Sprite(Vector2D position, Vector2D velocity, Vector2D acceleration, double width, double height) {
 
         this.position = position;
@@ -63,8 +60,6 @@ public abstract class Sprite extends Region {
     public void move() {
         // set velocity depending on acceleration
         velocity.add(acceleration);
-        // limit velocity to max speed
-        velocity.limit(maxSpeed);
         // change position depending on velocity
         position.add(velocity);
         // angle: towards velocity (i.e., target)
@@ -92,11 +87,6 @@ public abstract class Sprite extends Region {
         return position;
     }
 
-    // normalizes acceleration value for processing
-    public double normalizedAcceleration() {
-        return (acceleration.magnitude() % 10);
-    }
-
     public void setLocation( double x, double y) {
         position.x = x;
         position.y = y;
@@ -107,19 +97,4 @@ public abstract class Sprite extends Region {
         position.y += y;
     }
 
-    public void decreaseLifeSpan() {
-    }
-
-    public boolean isDead() {
-        if (lifeSpan <= 0.0) {
-            return true;
-        } else {
-            return false;
-        }
-    }
-
-    public int getLifeSpan() {
-        return (int) lifeSpan;
-    }
-
 }
@@ -0,0 +1,89 @@
+
+/**
+ * Particle sprites of all lifespans in a single pixel array:
+ * A radial gradient per lifespan, from the lifespan colour in the center to transparent at the radius.
+ * The sprites are rasterized in plain Java, so they can be created on any thread.
+ */
+public class SpriteAtlas {
+
+    private final double radius;
+    private final int count;
+
+    // sprites one below the other, premultiplied ARGB
+    private final int[] pixels;
+    private final ParticleRasterizer.Stamp[] stamps;
+
+    private SpriteAtlas(double radius, int count, int[] pixels, ParticleRasterizer.Stamp[] stamps) {
+        this.radius = radius;
+        this.count = count;
+        this.pixels = pixels;
+        this.stamps = stamps;
+    }
+
+    /**
+     * Rasterize the sprites of the given radius for lifespans 0 to count - 1
+     */
+    public static SpriteAtlas create(double radius, int count) {
+
+        // same size as the snapshot of a circle with the radius
+        int size = Math.max(1, (int) (2 * radius));
+        int[] pixels = new int[size * size * count];
+        ParticleRasterizer.Stamp[] stamps = new ParticleRasterizer.Stamp[count];
+
+        // opacity of the gradient per pixel, the same for all sprites
+        double[] opacity = new double[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                double dx = x + 0.5 - size / 2.0;
+                double dy = y + 0.5 - size / 2.0;
+                double distance = Math.sqrt(dx * dx + dy * dy);
+                opacity[y * size + x] = distance < radius ? 1 - distance / radius : 0;
+            }
+        }
+
+        ColorRamp ramp = ColorRamp.lifeSpan(count);
+        for (int i = 0; i < count; i++) {
+            int color = ramp.get(i);
+            int offset = i * size * size;
+            for (int p = 0; p < size * size; p++) {
+                pixels[offset + p] = premultiplied(color, opacity[p]);
+            }
+            stamps[i] = new ParticleRasterizer.Stamp(size, size, pixels, offset);
+        }
+
+        return new SpriteAtlas(radius, count, pixels, stamps);
+    }
+
+    // colour with its alpha multiplied by the opacity, premultiplied
+    private static int premultiplied(int color, double opacity) {
+
+        double alpha = (color >>> 24) / 255.0 * opacity;
+
+        int a = (int) Math.round(alpha * 255);
+        int red = (int) Math.round(((color >> 16) & 0xFF) * alpha);
+        int green = (int) Math.round(((color >> 8) & 0xFF) * alpha);
+        int blue = (int) Math.round((color & 0xFF) * alpha);
+
+        return a << 24 | red << 16 | green << 8 | blue;
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Sprite per lifespan, as stamps into the pixels of the atlas
+     */
+    public ParticleRasterizer.Stamp[] getStamps() {
+        return stamps;
+    }
+
+}
@@ -0,0 +1,130 @@
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Creates sprite atlases on a background thread and keeps the recently used ones:
+ * A request for a cached atlas takes effect immediately, other requests once their atlas is created.
+ * Until then the previous atlas stays current, so the caller never waits.
+ */
+public class SpriteCache {
+
+    // number of atlases kept, e.g. for moving the size slider back and forth
+    static final int DEFAULT_CAPACITY = 8;
+
+    /**
+     * Parameters of an atlas
+     */
+    private static final class Key {
+
+        final double radius;
+        final int count;
+
+        Key(double radius, int count) {
+            this.radius = radius;
+            this.count = count;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return Double.compare(radius, key.radius) == 0 && count == key.count;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(radius, count);
+        }
+    }
+
+    // least recently used first
+    private final Map<Key, SpriteAtlas> atlases;
+
+    private final AtomicReference<SpriteAtlas> current = new AtomicReference<>();
+    // latest request, older requests that haven't started yet are skipped
+    private volatile Key requested;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sprite-atlas");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SpriteCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SpriteCache(int capacity) {
+        atlases = new LinkedHashMap<Key, SpriteAtlas>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, SpriteAtlas> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Make the atlas with the given parameters the current one, as soon as it is available
+     */
+    public void request(double radius, int count) {
+
+        Key key = new Key(radius, count);
+
+        if (executor.isShutdown()) {
+            return;
+        }
+
+        synchronized (atlases) {
+            requested = key;
+            SpriteAtlas atlas = atlases.get(key);
+            if (atlas != null) {
+                current.set(atlas);
+                return;
+            }
+        }
+
+        executor.execute(() -> {
+            synchronized (atlases) {
+                if (requested != key) {
+                    return;
+                }
+                // an earlier request for the same parameters may have created the atlas since this one was queued
+                SpriteAtlas cached = atlases.get(key);
+                if (cached != null) {
+                    current.set(cached);
+                    return;
+                }
+            }
+            SpriteAtlas created = SpriteAtlas.create(radius, count);
+            synchronized (atlases) {
+                atlases.put(key, created);
+                // a newer request may have been answered from the cache in the meantime
+                if (requested == key) {
+                    current.set(created);
+                }
+            }
+        });
+    }
+
+    /**
+     * Atlas of the latest completed request, null before the first one is completed
+     */
+    public SpriteAtlas current() {
+        return current.get();
+    }
+
+    /**
+     * Stop the background thread, requests that haven't started yet are dropped
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
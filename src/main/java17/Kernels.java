@@ -0,0 +1,56 @@
+
+/**
+ * Array kernels of the force and movement stages, applied to a range of particles [from, to).
+ *
+ * This is the Java 17 variant of the multi-release jar: it uses VectorKernels if the incubating Vector API
+ * was added to the module graph (--add-modules jdk.incubator.vector), otherwise the plain loops of ScalarKernels.
+ * Both produce the same results.
+ */
+final class Kernels {
+
+    private static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private Kernels() {
+    }
+
+    /**
+     * Name of the implementation, e.g. for the overlay and benchmarks
+     */
+    static String implementation() {
+        return VECTORIZED ? "vector (" + VectorKernels.lanes() + " lanes)" : "scalar";
+    }
+
+    /**
+     * Add the same force to the acceleration of every particle, e.g. gravity
+     */
+    static void addConstantForce(ParticleStore particles, int from, int to, double forceX, double forceY) {
+        if (VECTORIZED) {
+            VectorKernels.addConstantForce(particles, from, to, forceX, forceY);
+        } else {
+            ScalarKernels.addConstantForce(particles, from, to, forceX, forceY);
+        }
+    }
+
+    /**
+     * Add the force of the paddle with unlimited range to the acceleration of every particle
+     */
+    static void addPaddleForce(ParticleStore particles, int from, int to, Paddle paddle, double strength) {
+        if (VECTORIZED) {
+            VectorKernels.addPaddleForce(particles, from, to, paddle, strength);
+        } else {
+            ScalarKernels.addPaddleForce(particles, from, to, paddle, strength);
+        }
+    }
+
+    /**
+     * Move every particle, see ParticleStore.move
+     */
+    static void move(ParticleStore particles, int from, int to, double maxSpeed) {
+        if (VECTORIZED) {
+            VectorKernels.move(particles, from, to, maxSpeed);
+        } else {
+            ScalarKernels.move(particles, from, to, maxSpeed);
+        }
+    }
+
+}
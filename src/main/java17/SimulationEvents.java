@@ -0,0 +1,190 @@
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Monitoring hooks of the simulation loop and the experiments.
+ *
+ * This is the Java 17 variant of the multi-release jar, it emits the events as Java Flight Recorder events,
+ * so they can be correlated with GC, JIT and allocation data of a recording. The events are disabled unless
+ * a recording enables them, e.g. java -XX:StartFlightRecording ...; a disabled event costs almost nothing.
+ */
+final class SimulationEvents {
+
+    private SimulationEvents() {
+    }
+
+    @Name("ParticlePhysicsSimulator.Frame")
+    @Label("Frame")
+    @Description("A completed step of the simulation engine")
+    @Category({ "Particle Physics Simulator", "Simulation" })
+    @StackTrace(false)
+    static final class FrameEvent extends Event {
+
+        @Label("Frame")
+        long frame;
+
+        @Label("Particles")
+        int particles;
+
+        @Label("Step")
+        @Timespan
+        long step;
+
+        @Label("Emit")
+        @Timespan
+        long emit;
+
+        @Label("Forces")
+        @Timespan
+        long forces;
+
+        @Label("Metrics")
+        @Timespan
+        long metrics;
+
+        @Label("Move")
+        @Timespan
+        long move;
+
+        @Label("Collisions")
+        @Timespan
+        long collisions;
+
+        @Label("Age")
+        @Timespan
+        long age;
+    }
+
+    @Name("ParticlePhysicsSimulator.ExperimentSample")
+    @Label("Experiment Sample")
+    @Description("The data of an experiment's frame sampling window")
+    @Category({ "Particle Physics Simulator", "Experiment" })
+    @StackTrace(false)
+    static final class ExperimentSampleEvent extends Event {
+
+        @Label("Experiment")
+        String experiment;
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Sample")
+        int sample;
+
+        @Label("Collisions")
+        double collisions;
+
+        @Label("Average Velocity")
+        double averageVelocity;
+
+        @Label("Average Acceleration")
+        double averageAcceleration;
+
+        @Label("Particle Collisions")
+        double particleCollisions;
+    }
+
+    @Name("ParticlePhysicsSimulator.ExperimentCompleted")
+    @Label("Experiment Completed")
+    @Description("A completed experiment")
+    @Category({ "Particle Physics Simulator", "Experiment" })
+    @StackTrace(false)
+    static final class ExperimentCompletedEvent extends Event {
+
+        @Label("Experiment")
+        String experiment;
+
+        @Label("Seed")
+        long seed;
+
+        @Label("Samples")
+        int samples;
+
+        @Label("Frame")
+        long frame;
+    }
+
+    /**
+     * Start of a step of the engine: the frame event begins here, so that it spans the whole step on the timeline
+     * @return the begun event, null if frame events aren't recorded
+     */
+    static Object frameStarted() {
+
+        FrameEvent event = new FrameEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+
+        event.begin();
+        return event;
+    }
+
+    /**
+     * A completed step of the engine
+     * @param started handle returned by frameStarted() at the start of the step
+     * @param phaseDurations nanoseconds per FrameProfiler.Phase, 0 for the phases that didn't run
+     */
+    static void frame(Object started, long frame, int particles, long[] phaseDurations) {
+
+        if (started == null) {
+            return;
+        }
+
+        FrameEvent event = (FrameEvent) started;
+        event.frame = frame;
+        event.particles = particles;
+        event.emit = phaseDurations[FrameProfiler.Phase.EMIT.ordinal()];
+        event.forces = phaseDurations[FrameProfiler.Phase.FORCES.ordinal()];
+        event.metrics = phaseDurations[FrameProfiler.Phase.METRICS.ordinal()];
+        event.move = phaseDurations[FrameProfiler.Phase.MOVE.ordinal()];
+        event.collisions = phaseDurations[FrameProfiler.Phase.COLLISIONS.ordinal()];
+        event.age = phaseDurations[FrameProfiler.Phase.AGE.ordinal()];
+        event.step = event.emit + event.forces + event.metrics + event.move + event.collisions + event.age;
+        event.commit();
+    }
+
+    /**
+     * A sample of an experiment, i.e. the data of a frame sampling window
+     */
+    static void experimentSample(String experiment, String phase, int sample, double collisions, double averageVelocity,
+                                 double averageAcceleration, double particleCollisions) {
+
+        ExperimentSampleEvent event = new ExperimentSampleEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+
+        event.experiment = experiment;
+        event.phase = phase;
+        event.sample = sample;
+        event.collisions = collisions;
+        event.averageVelocity = averageVelocity;
+        event.averageAcceleration = averageAcceleration;
+        event.particleCollisions = particleCollisions;
+        event.commit();
+    }
+
+    /**
+     * A completed experiment
+     */
+    static void experimentCompleted(String experiment, long seed, int samples, long frame) {
+
+        ExperimentCompletedEvent event = new ExperimentCompletedEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+
+        event.experiment = experiment;
+        event.seed = seed;
+        event.samples = samples;
+        event.frame = frame;
+        event.commit();
+    }
+
+}
@@ -0,0 +1,107 @@
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Array kernels with the Vector API, see Kernels.
+ * The lanes are calculated with the same operations in the same order as ScalarKernels, conditions become masks,
+ * so the results are the same. The remainder of a range that doesn't fill all lanes is left to ScalarKernels.
+ */
+final class VectorKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    // same distance constraints as Paddle
+    private static final double MIN_DISTANCE = 5;
+    private static final double MAX_DISTANCE = 1000;
+
+    private VectorKernels() {
+    }
+
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    static void addConstantForce(ParticleStore particles, int from, int to, double forceX, double forceY) {
+
+        double[] ax = particles.ax;
+        double[] ay = particles.ay;
+
+        int i = from;
+        for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, ax, i).add(forceX).intoArray(ax, i);
+            DoubleVector.fromArray(SPECIES, ay, i).add(forceY).intoArray(ay, i);
+        }
+
+        ScalarKernels.addConstantForce(particles, i, to, forceX, forceY);
+    }
+
+    static void addPaddleForce(ParticleStore particles, int from, int to, Paddle paddle, double strength) {
+
+        double[] x = particles.x;
+        double[] y = particles.y;
+        double[] ax = particles.ax;
+        double[] ay = particles.ay;
+        double paddleX = paddle.position.x;
+        double paddleY = paddle.position.y;
+        double factorStrength = paddle.factor * strength;
+
+        int i = from;
+        for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length()) {
+            // direction and distance
+            DoubleVector directionX = DoubleVector.broadcast(SPECIES, paddleX).sub(DoubleVector.fromArray(SPECIES, x, i));
+            DoubleVector directionY = DoubleVector.broadcast(SPECIES, paddleY).sub(DoubleVector.fromArray(SPECIES, y, i));
+            DoubleVector distance = directionX.mul(directionX).add(directionY.mul(directionY)).sqrt();
+            // normalize direction, except for distances 0 and 1
+            VectorMask<Double> normalize = distance.compare(VectorOperators.NE, 0).and(distance.compare(VectorOperators.NE, 1));
+            directionX = directionX.blend(directionX.div(distance), normalize);
+            directionY = directionY.blend(directionY.div(distance), normalize);
+            // constrained distance and magnitude
+            DoubleVector constrained = distance.min(MAX_DISTANCE).max(MIN_DISTANCE);
+            DoubleVector magnitude = DoubleVector.broadcast(SPECIES, factorStrength).div(constrained.mul(constrained));
+            DoubleVector.fromArray(SPECIES, ax, i).add(directionX.mul(magnitude)).intoArray(ax, i);
+            DoubleVector.fromArray(SPECIES, ay, i).add(directionY.mul(magnitude)).intoArray(ay, i);
+        }
+
+        ScalarKernels.addPaddleForce(particles, i, to, paddle, strength);
+    }
+
+    static void move(ParticleStore particles, int from, int to, double maxSpeed) {
+
+        double[] x = particles.x;
+        double[] y = particles.y;
+        double[] vx = particles.vx;
+        double[] vy = particles.vy;
+        double[] ax = particles.ax;
+        double[] ay = particles.ay;
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+
+        int i = from;
+        for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length()) {
+            // velocity depending on acceleration
+            DoubleVector velocityX = DoubleVector.fromArray(SPECIES, vx, i).add(DoubleVector.fromArray(SPECIES, ax, i));
+            DoubleVector velocityY = DoubleVector.fromArray(SPECIES, vy, i).add(DoubleVector.fromArray(SPECIES, ay, i));
+            // limit velocity to max speed
+            DoubleVector speed = velocityX.mul(velocityX).add(velocityY.mul(velocityY)).sqrt();
+            VectorMask<Double> limit = speed.compare(VectorOperators.GT, maxSpeed);
+            VectorMask<Double> normalize = limit.and(speed.compare(VectorOperators.NE, 0)).and(speed.compare(VectorOperators.NE, 1));
+            velocityX = velocityX.blend(velocityX.div(speed), normalize);
+            velocityY = velocityY.blend(velocityY.div(speed), normalize);
+            velocityX = velocityX.blend(velocityX.mul(maxSpeed), limit);
+            velocityY = velocityY.blend(velocityY.mul(maxSpeed), limit);
+            velocityX.intoArray(vx, i);
+            velocityY.intoArray(vy, i);
+            // position depending on velocity
+            DoubleVector.fromArray(SPECIES, x, i).add(velocityX).intoArray(x, i);
+            DoubleVector.fromArray(SPECIES, y, i).add(velocityY).intoArray(y, i);
+            // clear acceleration
+            zero.intoArray(ax, i);
+            zero.intoArray(ay, i);
+        }
+
+        ScalarKernels.move(particles, i, to, maxSpeed);
+    }
+
+}